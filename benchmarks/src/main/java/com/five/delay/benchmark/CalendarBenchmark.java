@@ -0,0 +1,49 @@
+package com.five.delay.benchmark;
+
+import com.five.delay.utils.CalendarUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 到期时间戳计算基准：每条任务发送、重试时调用 {@link CalendarUtils#getCurrentTimeInMillis(int, int)}
+ * currentTimeMillis为不经过Calendar的基线
+ * 运行：java -jar benchmarks/target/benchmarks.jar CalendarBenchmark
+ * @author luopeng
+ * @date 2026-10-18 18:20
+ * @remark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalendarBenchmark {
+
+    private int delay = 5000;
+
+    @Benchmark
+    public long calendarMillisecond() {
+        return CalendarUtils.getCurrentTimeInMillis(delay, Calendar.MILLISECOND);
+    }
+
+    @Benchmark
+    public long calendarSecond() {
+        return CalendarUtils.getCurrentTimeInMillis(delay / 1000, Calendar.SECOND);
+    }
+
+    @Benchmark
+    public long currentTimeMillis() {
+        return System.currentTimeMillis() + delay;
+    }
+}
@@ -0,0 +1,105 @@
+package com.five.delay.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.five.delay.codec.CompactDelayCodec;
+import com.five.delay.codec.DelayCodec;
+import com.five.delay.codec.JacksonDelayCodec;
+import com.five.delay.handler.bean.DelayElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务元素编解码基准：jackson（redisTemplate默认值序列化器）与compact格式的编解码耗时及元素字节数
+ * skip：轮询线程跳过本地服务无法消费的元素时，只比较头部delayName的耗时
+ * 运行：mvn -f benchmarks/pom.xml package && java -jar benchmarks/target/benchmarks.jar CodecBenchmark
+ * 元素字节数：java -cp benchmarks/target/benchmarks.jar com.five.delay.benchmark.CodecBenchmark
+ * @author luopeng
+ * @date 2026-10-18 16:40
+ * @remark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"jackson", "compact"})
+    private String codecName;
+
+    /**
+     * 消息体类型：string（订单号等短字符串）、long（ID）
+     */
+    @Param({"string", "long"})
+    private String valueType;
+
+    private DelayCodec codec;
+    private DelayElement element;
+    private byte[] bytes;
+    private byte[] otherName;
+
+    @Setup
+    public void setup() {
+        codec = codec(codecName);
+        element = element(valueType);
+        bytes = codec.encode(element);
+        otherName = "paymentTimeout".getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 输出各编解码器、消息体类型下的元素字节数（不在基准中输出，避免与JMH的输出交错）
+     */
+    public static void main(String[] args) {
+        for (String codecName : new String[]{JacksonDelayCodec.NAME, CompactDelayCodec.NAME}) {
+            for (String valueType : new String[]{"string", "long"}) {
+                System.out.println(codecName + "/" + valueType + " bytes per member: " + codec(codecName).encode(element(valueType)).length);
+            }
+        }
+    }
+
+    private static DelayCodec codec(String codecName) {
+        Jackson2JsonRedisSerializer serializer = new Jackson2JsonRedisSerializer(Object.class);
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        serializer.setObjectMapper(om);
+        return JacksonDelayCodec.NAME.equals(codecName) ? new JacksonDelayCodec(serializer) : new CompactDelayCodec(serializer);
+    }
+
+    private static DelayElement element(String valueType) {
+        Object value = "string".equals(valueType) ? (Object) "ORDER-20261018-000123456" : (Object) 20261018000123456L;
+        return new DelayElement("orderTimeout", value, 3, 5000);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(element);
+    }
+
+    @Benchmark
+    public DelayElement decode() {
+        return codec.decode(bytes);
+    }
+
+    @Benchmark
+    public boolean skip() {
+        return codec.matchDelayName(bytes, otherName);
+    }
+}
@@ -0,0 +1,64 @@
+package com.five.delay.benchmark;
+
+import com.five.delay.handler.DelayHandlerInvoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理器调用基准：反射调用（Method.invoke，原分发方式）与预编译的 {@link DelayHandlerInvoker}（MethodHandle）
+ * 运行：java -jar benchmarks/target/benchmarks.jar DispatchBenchmark
+ * @author luopeng
+ * @date 2026-10-18 18:20
+ * @remark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private final Handler handler = new Handler();
+    private final Object value = "ORDER-20261018-000123456";
+    private Method method;
+    private DelayHandlerInvoker invoker;
+
+    @Setup
+    public void setup() throws Exception {
+        method = Handler.class.getDeclaredMethod("handle", String.class);
+        invoker = new DelayHandlerInvoker("orderTimeout", "delay.task.orderTimeout", method, handler);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return method.invoke(handler, value);
+    }
+
+    @Benchmark
+    public Object invoker() throws Throwable {
+        return invoker.invoke(value);
+    }
+
+    /**
+     * 模拟的延迟任务处理器
+     */
+    public static class Handler {
+        private int handled;
+
+        public void handle(String orderNo) {
+            handled += orderNo.length();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.five.delay.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.five.delay.codec.DelayElementCodec;
+import com.five.delay.handler.DelayClaimer;
+import com.five.delay.handler.DelayEnqueuer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 基准测试使用的本地redis-server：启动独立进程（不持久化），并创建只包含写入器、认领器的Spring容器
+ * -Dbenchmark.redis.server 指定redis-server可执行文件（默认从PATH查找），-Dbenchmark.redis.port 指定端口（默认16379）
+ * @author luopeng
+ * @date 2026-10-18 18:20
+ * @remark
+ */
+public class RedisServerFixture {
+
+    private static final String SERVER = System.getProperty("benchmark.redis.server", "redis-server");
+    private static final int PORT = Integer.getInteger("benchmark.redis.port", 16379);
+
+    private Process process;
+    private AnnotationConfigApplicationContext context;
+
+    /**
+     * 启动redis-server并创建容器
+     * @param properties delay.handler配置（如codec、storeMode）
+     */
+    public void start(Map<String, Object> properties) throws Exception {
+        process = new ProcessBuilder(SERVER, "--port", String.valueOf(PORT), "--save", "", "--appendonly", "no")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "benchmark-redis-" + PORT + ".log"))
+                .start();
+        awaitReady();
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(RedisConfig.class, DelayElementCodec.class, DelayEnqueuer.class, DelayClaimer.class);
+        context.refresh();
+    }
+
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 清空数据，每轮测试前调用
+     */
+    public void flush() {
+        context.getBean(RedisTemplate.class).execute(connection -> {
+            connection.flushDb();
+            return null;
+        }, true);
+    }
+
+    private void awaitReady() throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new Exception("redis-server启动失败，请通过 -Dbenchmark.redis.server 指定可执行文件");
+            }
+            try (Socket socket = new Socket("127.0.0.1", PORT)) {
+                OutputStream out = socket.getOutputStream();
+                out.write("PING\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                InputStream in = socket.getInputStream();
+                byte[] reply = new byte[7];
+                if (in.read(reply) > 0 && reply[0] == '+') {
+                    return;
+                }
+            } catch (IOException e) {
+                // 尚未监听端口
+            }
+            Thread.sleep(50);
+        }
+        throw new Exception("redis-server启动超时，端口：" + PORT);
+    }
+
+    /**
+     * 与业务工程相同的redisTemplate配置：jackson值序列化器
+     */
+    static class RedisConfig {
+
+        @Bean
+        public LettuceConnectionFactory redisConnectionFactory() {
+            return new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", PORT));
+        }
+
+        @Bean
+        public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+            RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+            template.setConnectionFactory(factory);
+            Jackson2JsonRedisSerializer serializer = new Jackson2JsonRedisSerializer(Object.class);
+            ObjectMapper om = new ObjectMapper();
+            om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+            om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+            serializer.setObjectMapper(om);
+            template.setKeySerializer(new StringRedisSerializer());
+            template.setHashKeySerializer(new StringRedisSerializer());
+            template.setValueSerializer(serializer);
+            template.setHashValueSerializer(serializer);
+            return template;
+        }
+    }
+}
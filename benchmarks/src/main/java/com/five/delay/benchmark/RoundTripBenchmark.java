@@ -0,0 +1,134 @@
+package com.five.delay.benchmark;
+
+import com.five.delay.codec.DelayElementCodec;
+import com.five.delay.handler.DelayClaimer;
+import com.five.delay.handler.DelayEnqueuer;
+import com.five.delay.handler.bean.DelayElement;
+import com.five.delay.handler.bean.DelayTuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入与认领的Redis往返基准，redis-server由 {@link RedisServerFixture} 在本地启动
+ * enqueue：写入一批已到期的任务（一次脚本调用）
+ * enqueueClaim：写入一批任务后通过claim脚本认领（两次往返）
+ * enqueueRangeRemove：写入一批任务后通过 range + 逐个删除认领（原认领方式，1 + 批量大小次往返）
+ * 运行：java -Dbenchmark.redis.server=/path/to/redis-server -jar benchmarks/target/benchmarks.jar RoundTripBenchmark
+ * @author luopeng
+ * @date 2026-10-18 18:20
+ * @remark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private static final String KEY = "delay.task.benchmark";
+
+    private static final int PAYLOADS = 1 << 16;
+
+    @Param({"inline", "hash"})
+    private String storeMode;
+
+    @Param({"jackson", "compact"})
+    private String codec;
+
+    @Param({"1", "10"})
+    private int batchSize;
+
+    private final RedisServerFixture fixture = new RedisServerFixture();
+    private DelayEnqueuer enqueuer;
+    private DelayClaimer claimer;
+    /**
+     * 预先编码的任务元素，消息体中的订单号各不相同（inline存储时zSet元素需各不相同）
+     */
+    private byte[][] payloads;
+    private int sequence;
+
+    @Setup
+    public void setup() throws Exception {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("delay.handler.storeMode", storeMode);
+        properties.put("delay.handler.codec", codec);
+        fixture.start(properties);
+        enqueuer = fixture.getBean(DelayEnqueuer.class);
+        claimer = fixture.getBean(DelayClaimer.class);
+        DelayElementCodec elementCodec = fixture.getBean(DelayElementCodec.class);
+        payloads = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) {
+            payloads[i] = elementCodec.encode(new DelayElement("orderTimeout", String.format("ORDER-20261018-%09d", i), 3, 0));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void flush() {
+        fixture.flush();
+    }
+
+    @Benchmark
+    public Long enqueue() {
+        return enqueuer.enqueue(Collections.singletonList(batch()));
+    }
+
+    @Benchmark
+    public int enqueueClaim() {
+        enqueuer.enqueue(Collections.singletonList(batch()));
+        return claimer.claim(KEY, batchSize).getTuples().size();
+    }
+
+    @Benchmark
+    public int enqueueRangeRemove() {
+        enqueuer.enqueue(Collections.singletonList(batch()));
+        Set<RedisZSetCommands.Tuple> items = claimer.range(KEY, batchSize);
+        List<byte[]> payloads = claimer.payloads(KEY, items);
+        int claimed = 0;
+        int i = 0;
+        for (RedisZSetCommands.Tuple item : items) {
+            DelayTuple tuple = claimer.toTuple(item, payloads.get(i++));
+            if (claimer.remove(KEY, tuple)) {
+                claimed++;
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 一批已到期的任务
+     */
+    private DelayEnqueuer.Batch batch() {
+        DelayEnqueuer.Batch batch = new DelayEnqueuer.Batch(KEY);
+        long score = System.currentTimeMillis() - 1;
+        for (int i = 0; i < batchSize; i++) {
+            byte[] element = payloads[sequence++ & (PAYLOADS - 1)];
+            batch.add(enqueuer.newMember(element), element, score, 0);
+        }
+        return batch;
+    }
+}
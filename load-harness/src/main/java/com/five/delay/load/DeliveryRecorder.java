@@ -0,0 +1,75 @@
+package com.five.delay.load;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 投递记录：按任务序号统计重复投递，记录每条任务的投递延迟（处理时间 - 到期时间）
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+@Component
+public class DeliveryRecorder {
+
+    private final ConcurrentHashMap<Long, Boolean> delivered = new ConcurrentHashMap<Long, Boolean>(1 << 16);
+    private final AtomicLong duplicates = new AtomicLong();
+    private long[] lateness = new long[1 << 16];
+    private int size;
+    private volatile long firstDelivery;
+    private volatile long lastDelivery;
+
+    /**
+     * 记录一次投递
+     * @param message 任务消息体
+     */
+    public void record(String message) {
+        long now = System.currentTimeMillis();
+        LoadMessage loadMessage = LoadMessage.parse(message);
+        if (delivered.putIfAbsent(loadMessage.getSequence(), Boolean.TRUE) != null) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        synchronized (this) {
+            if (size == lateness.length) {
+                lateness = Arrays.copyOf(lateness, size * 2);
+            }
+            lateness[size++] = now - loadMessage.getDue();
+            if (firstDelivery == 0) {
+                firstDelivery = now;
+            }
+            lastDelivery = now;
+        }
+    }
+
+    /**
+     * 已投递的任务数（不含重复投递）
+     */
+    public int getDelivered() {
+        return delivered.size();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getFirstDelivery() {
+        return firstDelivery;
+    }
+
+    public long getLastDelivery() {
+        return lastDelivery;
+    }
+
+    /**
+     * 排序后的投递延迟(毫秒)
+     */
+    public synchronized long[] sortedLateness() {
+        long[] sorted = Arrays.copyOf(lateness, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
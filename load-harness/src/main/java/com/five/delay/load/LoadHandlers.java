@@ -0,0 +1,107 @@
+package com.five.delay.load;
+
+import com.five.delay.annotation.DelayListener;
+import com.five.delay.conf.DelayPollModeConf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 各任务轮询模式的压测处理器，按 load.pollMode 只注册一组，避免其他模式的空轮询计入Redis命令数
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+public class LoadHandlers {
+
+    /**
+     * 各模式下的延迟任务名
+     */
+    public static final String[] EXCLUSIVE = {"load-exclusive-1", "load-exclusive-2", "load-exclusive-3"};
+    public static final String[] CUSTOMIZE = {"load-customize-1", "load-customize-2", "load-customize-3"};
+    public static final String[] PUBLIC = {"load-public-1", "load-public-2", "load-public-3"};
+
+    public static String[] delayNames(String pollMode) {
+        if (DelayPollModeConf.MODE_CUSTOMIZE.equals(pollMode)) {
+            return CUSTOMIZE;
+        }
+        if (DelayPollModeConf.MODE_PUBLIC.equals(pollMode)) {
+            return PUBLIC;
+        }
+        return EXCLUSIVE;
+    }
+
+    abstract static class Handlers {
+        @Autowired
+        private DeliveryRecorder deliveryRecorder;
+        @Autowired
+        private LoadProperties loadProperties;
+
+        void handle(String message) throws InterruptedException {
+            deliveryRecorder.record(message);
+            if (loadProperties.getHandlerWork() > 0) {
+                Thread.sleep(loadProperties.getHandlerWork());
+            }
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "load", name = "poll-mode", havingValue = DelayPollModeConf.MODE_EXCLUSIVE, matchIfMissing = true)
+    public static class ExclusiveHandlers extends Handlers {
+
+        @DelayListener(name = "load-exclusive-1", retry = 0)
+        public void handle1(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-exclusive-2", retry = 0)
+        public void handle2(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-exclusive-3", retry = 0)
+        public void handle3(String message) throws InterruptedException {
+            handle(message);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "load", name = "poll-mode", havingValue = DelayPollModeConf.MODE_CUSTOMIZE)
+    public static class CustomizeHandlers extends Handlers {
+
+        @DelayListener(name = "load-customize-1", mode = DelayPollModeConf.MODE_CUSTOMIZE, task = "load-customize", retry = 0)
+        public void handle1(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-customize-2", mode = DelayPollModeConf.MODE_CUSTOMIZE, task = "load-customize", retry = 0)
+        public void handle2(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-customize-3", mode = DelayPollModeConf.MODE_CUSTOMIZE, task = "load-customize", retry = 0)
+        public void handle3(String message) throws InterruptedException {
+            handle(message);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "load", name = "poll-mode", havingValue = DelayPollModeConf.MODE_PUBLIC)
+    public static class PublicHandlers extends Handlers {
+
+        @DelayListener(name = "load-public-1", mode = DelayPollModeConf.MODE_PUBLIC, retry = 0)
+        public void handle1(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-public-2", mode = DelayPollModeConf.MODE_PUBLIC, retry = 0)
+        public void handle2(String message) throws InterruptedException {
+            handle(message);
+        }
+
+        @DelayListener(name = "load-public-3", mode = DelayPollModeConf.MODE_PUBLIC, retry = 0)
+        public void handle3(String message) throws InterruptedException {
+            handle(message);
+        }
+    }
+}
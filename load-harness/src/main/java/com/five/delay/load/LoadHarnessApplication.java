@@ -0,0 +1,35 @@
+package com.five.delay.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 端到端压测：按配置的发送速率与延迟时间分布发送任务，统计投递延迟、重复与丢失、每条任务的Redis命令数，输出JSON/CSV报告
+ * 运行：java -jar load-harness/target/load-harness.jar --load.pollMode=public --load.rate=1000
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+@SpringBootApplication
+@EnableConfigurationProperties(LoadProperties.class)
+public class LoadHarnessApplication {
+
+    private static Logger logger = LoggerFactory.getLogger(LoadHarnessApplication.class);
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(LoadHarnessApplication.class, args);
+        int exitCode = 0;
+        try {
+            context.getBean(LoadRunner.class).run();
+        } catch (Exception e) {
+            logger.error("压测执行异常："+e.getMessage(), e);
+            exitCode = 1;
+        }
+        final int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
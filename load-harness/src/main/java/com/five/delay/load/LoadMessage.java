@@ -0,0 +1,36 @@
+package com.five.delay.load;
+
+/**
+ * 压测任务消息体：任务序号与到期时间戳，以字符串发送（序号:到期时间戳）
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+public class LoadMessage {
+
+    private final long sequence;
+    private final long due;
+
+    public LoadMessage(long sequence, long due) {
+        this.sequence = sequence;
+        this.due = due;
+    }
+
+    public static LoadMessage parse(String message) {
+        int separator = message.indexOf(':');
+        return new LoadMessage(Long.parseLong(message.substring(0, separator)), Long.parseLong(message.substring(separator + 1)));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getDue() {
+        return due;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + ":" + due;
+    }
+}
@@ -0,0 +1,165 @@
+package com.five.delay.load;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 压测配置
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+@ConfigurationProperties(prefix = "load")
+public class LoadProperties {
+
+    public static final String DISTRIBUTION_FIXED = "fixed";
+    public static final String DISTRIBUTION_UNIFORM = "uniform";
+    public static final String DISTRIBUTION_EXPONENTIAL = "exponential";
+
+    /**
+     * 任务轮询模式：exclusive、customize、public，只注册对应模式的处理器
+     */
+    private String pollMode = "exclusive";
+    /**
+     * 发送线程数
+     */
+    private int producers = 4;
+    /**
+     * 每秒发送的任务总数
+     */
+    private int rate = 500;
+    /**
+     * 持续发送时长(秒)
+     */
+    private int duration = 30;
+    /**
+     * 大于1时通过sendMessages批量发送
+     */
+    private int batchSize = 1;
+    /**
+     * 任务分布的延迟任务数（1-3）
+     */
+    private int handlers = 3;
+    /**
+     * 处理器模拟的处理耗时(毫秒)
+     */
+    private int handlerWork = 0;
+    /**
+     * 延迟时间分布：fixed、uniform、exponential
+     */
+    private String delayDistribution = DISTRIBUTION_UNIFORM;
+    private int delayMin = 1000;
+    private int delayMax = 5000;
+    private int delayMean = 2000;
+    /**
+     * 最后一个任务到期后等待投递完成的最长时间(毫秒)
+     */
+    private int drainTimeout = 30000;
+    /**
+     * 报告目录
+     */
+    private String reportDir = "load-report";
+
+    public String getPollMode() {
+        return pollMode;
+    }
+
+    public void setPollMode(String pollMode) {
+        this.pollMode = pollMode;
+    }
+
+    public int getProducers() {
+        return producers;
+    }
+
+    public void setProducers(int producers) {
+        this.producers = producers;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getHandlers() {
+        return handlers;
+    }
+
+    public void setHandlers(int handlers) {
+        this.handlers = handlers;
+    }
+
+    public int getHandlerWork() {
+        return handlerWork;
+    }
+
+    public void setHandlerWork(int handlerWork) {
+        this.handlerWork = handlerWork;
+    }
+
+    public String getDelayDistribution() {
+        return delayDistribution;
+    }
+
+    public void setDelayDistribution(String delayDistribution) {
+        this.delayDistribution = delayDistribution;
+    }
+
+    public int getDelayMin() {
+        return delayMin;
+    }
+
+    public void setDelayMin(int delayMin) {
+        this.delayMin = delayMin;
+    }
+
+    public int getDelayMax() {
+        return delayMax;
+    }
+
+    public void setDelayMax(int delayMax) {
+        this.delayMax = delayMax;
+    }
+
+    public int getDelayMean() {
+        return delayMean;
+    }
+
+    public void setDelayMean(int delayMean) {
+        this.delayMean = delayMean;
+    }
+
+    public int getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public void setDrainTimeout(int drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public String getReportDir() {
+        return reportDir;
+    }
+
+    public void setReportDir(String reportDir) {
+        this.reportDir = reportDir;
+    }
+}
@@ -0,0 +1,281 @@
+package com.five.delay.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 压测报告：每次运行输出一个JSON文件，并在 load-report.csv 中追加一行，便于对比不同配置
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+public class LoadReport {
+
+    private static final List<String> CSV_COLUMNS = Arrays.asList("startTime", "pollMode", "claimMode", "scheduleMode", "storeMode", "codec",
+            "producers", "targetRate", "batchSize", "delayDistribution", "sent", "sendErrors", "delivered", "duplicates", "lost",
+            "sendThroughput", "deliveryThroughput", "latenessP50", "latenessP99", "latenessP999", "latenessMax",
+            "redisCommands", "redisCommandsPerMessage");
+
+    private long startTime;
+    private String pollMode;
+    private String claimMode;
+    private String scheduleMode;
+    private String storeMode;
+    private String codec;
+    private int producers;
+    private int targetRate;
+    private int batchSize;
+    private String delayDistribution;
+    private long sent;
+    private long sendErrors;
+    private long delivered;
+    private long duplicates;
+    private long lost;
+    /**
+     * 发送速率(条/秒)
+     */
+    private double sendThroughput;
+    /**
+     * 投递速率(条/秒)，按首次投递至最后一次投递的时间计算
+     */
+    private double deliveryThroughput;
+    /**
+     * 投递延迟(毫秒)：处理器开始处理的时间 - 任务到期时间
+     */
+    private long latenessP50;
+    private long latenessP99;
+    private long latenessP999;
+    private long latenessMax;
+    /**
+     * 压测期间Redis处理的命令数（含轮询）
+     */
+    private long redisCommands;
+    private double redisCommandsPerMessage;
+
+    /**
+     * 输出JSON报告，并追加CSV
+     * @param dir 报告目录
+     */
+    public void write(String dir) throws IOException {
+        File reportDir = new File(dir);
+        reportDir.mkdirs();
+        String name = "load-" + pollMode + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startTime)) + ".json";
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(reportDir, name), this);
+
+        File csv = new File(reportDir, "load-report.csv");
+        StringBuilder line = new StringBuilder();
+        if (!csv.exists()) {
+            line.append(String.join(",", CSV_COLUMNS)).append('\n');
+        }
+        line.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(startTime))).append(',')
+                .append(pollMode).append(',').append(claimMode).append(',').append(scheduleMode).append(',')
+                .append(storeMode).append(',').append(codec).append(',')
+                .append(producers).append(',').append(targetRate).append(',').append(batchSize).append(',').append(delayDistribution).append(',')
+                .append(sent).append(',').append(sendErrors).append(',').append(delivered).append(',').append(duplicates).append(',').append(lost).append(',')
+                .append(String.format("%.1f,%.1f", sendThroughput, deliveryThroughput)).append(',')
+                .append(latenessP50).append(',').append(latenessP99).append(',').append(latenessP999).append(',').append(latenessMax).append(',')
+                .append(redisCommands).append(',').append(String.format("%.2f", redisCommandsPerMessage)).append('\n');
+        Files.write(csv.toPath(), line.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public String summary() {
+        return "sent=" + sent + " delivered=" + delivered + " duplicates=" + duplicates + " lost=" + lost
+                + String.format(" throughput=%.1f/s", deliveryThroughput)
+                + " lateness p50=" + latenessP50 + "ms p99=" + latenessP99 + "ms p999=" + latenessP999 + "ms max=" + latenessMax + "ms"
+                + String.format(" redisCommandsPerMessage=%.2f", redisCommandsPerMessage);
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getPollMode() {
+        return pollMode;
+    }
+
+    public void setPollMode(String pollMode) {
+        this.pollMode = pollMode;
+    }
+
+    public String getClaimMode() {
+        return claimMode;
+    }
+
+    public void setClaimMode(String claimMode) {
+        this.claimMode = claimMode;
+    }
+
+    public String getScheduleMode() {
+        return scheduleMode;
+    }
+
+    public void setScheduleMode(String scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    public String getStoreMode() {
+        return storeMode;
+    }
+
+    public void setStoreMode(String storeMode) {
+        this.storeMode = storeMode;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public int getProducers() {
+        return producers;
+    }
+
+    public void setProducers(int producers) {
+        this.producers = producers;
+    }
+
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    public void setTargetRate(int targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getDelayDistribution() {
+        return delayDistribution;
+    }
+
+    public void setDelayDistribution(String delayDistribution) {
+        this.delayDistribution = delayDistribution;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getSendErrors() {
+        return sendErrors;
+    }
+
+    public void setSendErrors(long sendErrors) {
+        this.sendErrors = sendErrors;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    public void setDelivered(long delivered) {
+        this.delivered = delivered;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getLost() {
+        return lost;
+    }
+
+    public void setLost(long lost) {
+        this.lost = lost;
+    }
+
+    public double getSendThroughput() {
+        return sendThroughput;
+    }
+
+    public void setSendThroughput(double sendThroughput) {
+        this.sendThroughput = sendThroughput;
+    }
+
+    public double getDeliveryThroughput() {
+        return deliveryThroughput;
+    }
+
+    public void setDeliveryThroughput(double deliveryThroughput) {
+        this.deliveryThroughput = deliveryThroughput;
+    }
+
+    public long getLatenessP50() {
+        return latenessP50;
+    }
+
+    public void setLatenessP50(long latenessP50) {
+        this.latenessP50 = latenessP50;
+    }
+
+    public long getLatenessP99() {
+        return latenessP99;
+    }
+
+    public void setLatenessP99(long latenessP99) {
+        this.latenessP99 = latenessP99;
+    }
+
+    public long getLatenessP999() {
+        return latenessP999;
+    }
+
+    public void setLatenessP999(long latenessP999) {
+        this.latenessP999 = latenessP999;
+    }
+
+    public long getLatenessMax() {
+        return latenessMax;
+    }
+
+    public void setLatenessMax(long latenessMax) {
+        this.latenessMax = latenessMax;
+    }
+
+    public long getRedisCommands() {
+        return redisCommands;
+    }
+
+    public void setRedisCommands(long redisCommands) {
+        this.redisCommands = redisCommands;
+    }
+
+    public double getRedisCommandsPerMessage() {
+        return redisCommandsPerMessage;
+    }
+
+    public void setRedisCommandsPerMessage(double redisCommandsPerMessage) {
+        this.redisCommandsPerMessage = redisCommandsPerMessage;
+    }
+}
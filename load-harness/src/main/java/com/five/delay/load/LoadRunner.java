@@ -0,0 +1,190 @@
+package com.five.delay.load;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.handler.bean.DelayMessage;
+import com.five.delay.service.DelayMessageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测执行：多个发送线程按速率发送任务，发送结束后等待投递完成，生成报告
+ * Redis命令数取自 INFO stats 的 total_commands_processed 差值，压测期间Redis不应有其他客户端
+ * @author luopeng
+ * @date 2026-10-18 19:00
+ * @remark
+ */
+@Component
+public class LoadRunner {
+    private static Logger logger = LoggerFactory.getLogger(LoadRunner.class);
+
+    @Autowired
+    private LoadProperties loadProperties;
+    @Autowired
+    private DelayMessageService delayMessageService;
+    @Autowired
+    private DeliveryRecorder deliveryRecorder;
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private Environment environment;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong sendErrors = new AtomicLong();
+    private final AtomicLong lastDue = new AtomicLong();
+
+    public LoadReport run() throws Exception {
+        String pollMode = loadProperties.getPollMode();
+        String[] delayNames = LoadHandlers.delayNames(pollMode);
+        int handlers = Math.max(1, Math.min(loadProperties.getHandlers(), delayNames.length));
+        logger.info("压测开始：pollMode="+pollMode+"，rate="+loadProperties.getRate()+"/s，duration="+loadProperties.getDuration()+"s");
+
+        long commandsBefore = totalCommands();
+        long start = System.currentTimeMillis();
+        long end = start + loadProperties.getDuration() * 1000L;
+        int producers = Math.max(1, loadProperties.getProducers());
+        ExecutorService executor = Executors.newFixedThreadPool(producers,
+                new ThreadFactoryBuilder().setNamePrefix("load-producer-").build());
+        for (int i = 0; i < producers; i++) {
+            executor.execute(() -> produce(pollMode, delayNames, handlers, end, producers));
+        }
+        executor.shutdown();
+        executor.awaitTermination(loadProperties.getDuration() + 60L, TimeUnit.SECONDS);
+        long sendEnd = System.currentTimeMillis();
+        long sent = sequence.get() - sendErrors.get();
+
+        // 等待投递完成：全部投递，或最后一个任务到期后超过drainTimeout
+        long drainDeadline = Math.max(lastDue.get(), sendEnd) + loadProperties.getDrainTimeout();
+        while (deliveryRecorder.getDelivered() < sent && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        // 留出重复投递的观察时间
+        Thread.sleep(Math.min(2000, loadProperties.getDrainTimeout()));
+        long commands = totalCommands() - commandsBefore;
+
+        LoadReport report = buildReport(start, sendEnd, sent, commands);
+        report.write(loadProperties.getReportDir());
+        logger.info("压测结束："+report.summary());
+        return report;
+    }
+
+    /**
+     * 按速率发送任务，每个发送线程承担 rate / producers
+     */
+    private void produce(String pollMode, String[] delayNames, int handlers, long end, int producers) {
+        int batchSize = Math.max(1, loadProperties.getBatchSize());
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) * (double) producers * batchSize / Math.max(1, loadProperties.getRate()));
+        long next = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.currentTimeMillis() < end) {
+            List<DelayMessage<?>> messages = new ArrayList<DelayMessage<?>>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                int delay = nextDelay(random);
+                long due = System.currentTimeMillis() + delay;
+                String delayName = delayNames[random.nextInt(handlers)];
+                messages.add(new DelayMessage<String>(delayName, new LoadMessage(sequence.incrementAndGet(), due).toString(), delay, Calendar.MILLISECOND));
+                lastDue.accumulateAndGet(due, Math::max);
+            }
+            try {
+                if (batchSize == 1) {
+                    delayMessageService.sendMessage(messages.get(0), pollMode);
+                } else {
+                    delayMessageService.sendMessages(messages, pollMode);
+                }
+            } catch (Exception e) {
+                sendErrors.addAndGet(messages.size());
+                logger.error("任务发送异常："+e.getMessage());
+            }
+            next += interval;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private int nextDelay(ThreadLocalRandom random) {
+        int min = loadProperties.getDelayMin();
+        int max = Math.max(min, loadProperties.getDelayMax());
+        String distribution = loadProperties.getDelayDistribution();
+        if (LoadProperties.DISTRIBUTION_FIXED.equals(distribution)) {
+            return min;
+        }
+        if (LoadProperties.DISTRIBUTION_EXPONENTIAL.equals(distribution)) {
+            double delay = min - Math.log(1 - random.nextDouble()) * loadProperties.getDelayMean();
+            return (int) Math.min(delay, max);
+        }
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private long totalCommands() {
+        Properties info = (Properties) redisTemplate.execute(new RedisCallback<Properties>() {
+            @Override
+            public Properties doInRedis(RedisConnection connection) {
+                return connection.info("stats");
+            }
+        });
+        return info == null ? 0 : Long.parseLong(info.getProperty("total_commands_processed", "0"));
+    }
+
+    private LoadReport buildReport(long start, long sendEnd, long sent, long commands) {
+        LoadReport report = new LoadReport();
+        report.setStartTime(start);
+        report.setPollMode(loadProperties.getPollMode());
+        report.setClaimMode(environment.getProperty("delay.handler.claimMode", DelayPollModeConf.CLAIM_MODE_SCRIPT));
+        report.setScheduleMode(environment.getProperty("delay.handler.scheduleMode", DelayPollModeConf.SCHEDULE_MODE_FIXED));
+        report.setStoreMode(environment.getProperty("delay.handler.storeMode", DelayPollModeConf.STORE_MODE_INLINE));
+        report.setCodec(environment.getProperty("delay.handler.codec", "jackson"));
+        report.setProducers(loadProperties.getProducers());
+        report.setTargetRate(loadProperties.getRate());
+        report.setBatchSize(loadProperties.getBatchSize());
+        report.setDelayDistribution(loadProperties.getDelayDistribution());
+
+        int delivered = deliveryRecorder.getDelivered();
+        report.setSent(sent);
+        report.setSendErrors(sendErrors.get());
+        report.setDelivered(delivered);
+        report.setDuplicates(deliveryRecorder.getDuplicates());
+        report.setLost(Math.max(0, sent - delivered));
+        report.setSendThroughput(perSecond(sent, sendEnd - start));
+        report.setDeliveryThroughput(perSecond(delivered, deliveryRecorder.getLastDelivery() - deliveryRecorder.getFirstDelivery()));
+
+        long[] lateness = deliveryRecorder.sortedLateness();
+        report.setLatenessP50(percentile(lateness, 0.50));
+        report.setLatenessP99(percentile(lateness, 0.99));
+        report.setLatenessP999(percentile(lateness, 0.999));
+        report.setLatenessMax(lateness.length == 0 ? 0 : lateness[lateness.length - 1]);
+        report.setRedisCommands(commands);
+        report.setRedisCommandsPerMessage(delivered == 0 ? 0 : (double) commands / delivered);
+        return report;
+    }
+
+    private static double perSecond(long count, long millis) {
+        return millis <= 0 ? count : count * 1000.0 / millis;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -48,4 +48,50 @@ public @interface DelayListener {
      * @return
      */
     int retryDelay() default 0;
+
+    /**
+     * 配置任务处理并发数，大于0时使用独立的执行线程池（舱壁隔离），避免慢处理器占满公共执行器，默认为0（使用公共执行器）
+     * @return
+     */
+    int concurrency() default 0;
+
+    /**
+     * 配置独立执行线程池的队列容量，小于等于0时使用 delay.handler.processQueueCapacity
+     * @return
+     */
+    int queueCapacity() default 0;
+
+    /**
+     * 配置独立执行线程池名称，名称相同的延迟任务共用一个线程池（线程数取各任务concurrency的最大值），默认等于 name
+     * @return
+     */
+    String bulkhead() default "";
+
+    /**
+     * 配置任务处理超时时间，单位为毫秒，超时后中断处理线程，并立即按处理失败重试。默认为0毫秒（不超时）
+     * 不响应中断的处理方法（如阻塞IO）继续占用执行线程直至返回，返回结果被忽略（不再重试）；重试可能与仍在执行的原处理同时进行，处理方法需幂等
+     * 异步处理（处理方法返回CompletionStage）时，超时后取消返回的CompletionStage，并按处理失败重试
+     * @return
+     */
+    int timeout() default 0;
+
+    /**
+     * 配置任务key的分片数，大于1时任务消息按元素散列写入 key:0 ... key:N-1，每个分片由独立的轮询任务认领
+     * 小于等于0时使用 delay.handler.shards 中key的配置，未配置时不分片。同一key上的延迟任务分片数必须一致
+     * @return
+     */
+    int shards() default 0;
+
+    /**
+     * 配置批量处理的最大任务数，处理方法参数为List时为批量处理：一次轮询认领的同一延迟任务的消息合并为一次调用，每次最多maxBatchSize条，默认为100
+     * 处理方法抛出 DelayBatchException 时只有其中的元素按失败策略重试，抛出其他异常时整批重试
+     * @return
+     */
+    int maxBatchSize() default 100;
+
+    /**
+     * 配置批量处理的最长等待时间，单位为毫秒，消息不足maxBatchSize条时最多等待maxBatchWaitMs，与后续认领的消息合并处理。默认为0毫秒（认领后直接处理）
+     * @return
+     */
+    int maxBatchWaitMs() default 0;
 }
@@ -0,0 +1,277 @@
+package com.five.delay.codec;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.five.delay.handler.bean.DelayElement;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑二进制编解码器
+ * 格式：魔数(0xD7) | 版本(1) | delayName长度(varint) | delayName(UTF-8) | retry(zigzag varint) | retryDelay(varint) | retried(varint) | 类型ID(varint) | 消息体
+ * 消息体按类型ID编码：
+ *  0 null；1 String(UTF-8)；2 Integer；3 Long(zigzag varint)；4 Boolean；5 Double(8字节)；6 byte[]；
+ *  15 未注册类型，使用Jackson序列化器（含类型信息）；
+ *  大于等于64 通过 {@link #registerType} 注册的类型，JSON不含类名
+ * delayName位于固定位置，Lua脚本无需解析消息体即可按delayName过滤
+ * @author luopeng
+ * @date 2026-10-18 15:40
+ * @remark
+ */
+public class CompactDelayCodec implements DelayCodec {
+
+    public static final String NAME = "compact";
+
+    /**
+     * 魔数，区别于JSON格式的首字节
+     */
+    public static final byte MAGIC = (byte) 0xD7;
+    public static final byte VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INTEGER = 2;
+    private static final int TYPE_LONG = 3;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BYTES = 6;
+    private static final int TYPE_FALLBACK = 15;
+    /**
+     * 自定义类型ID的最小值
+     */
+    public static final int MIN_CUSTOM_TYPE = 64;
+
+    /**
+     * 未注册类型的序列化器
+     */
+    private final RedisSerializer fallback;
+    /**
+     * 注册类型的JSON序列化（不含类名）
+     */
+    private final ObjectMapper objectMapper;
+
+    private final Map<Integer, Class<?>> typeClasses = new ConcurrentHashMap<Integer, Class<?>>();
+    private final Map<Class<?>, Integer> typeIds = new ConcurrentHashMap<Class<?>, Integer>();
+
+    public CompactDelayCodec(RedisSerializer fallback) {
+        this.fallback = fallback;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * 注册消息体类型，注册后消息体以类型ID代替类名
+     * 所有节点需注册相同的类型ID
+     * @param typeId 类型ID，需大于等于64
+     * @param type 消息体类型
+     */
+    public void registerType(int typeId, Class<?> type) {
+        if (typeId < MIN_CUSTOM_TYPE) {
+            throw new IllegalArgumentException("自定义类型ID需大于等于" + MIN_CUSTOM_TYPE + "：" + typeId);
+        }
+        Class<?> exist = typeClasses.putIfAbsent(typeId, type);
+        if (exist != null && exist != type) {
+            throw new IllegalArgumentException("类型ID[" + typeId + "]已注册为" + exist.getName());
+        }
+        typeIds.put(type, typeId);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accept(byte[] bytes) {
+        return bytes != null && bytes.length > 1 && bytes[0] == MAGIC;
+    }
+
+    @Override
+    public byte[] encode(DelayElement element) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(MAGIC);
+        out.write(VERSION);
+        byte[] name = element.getDelayName() == null ? new byte[0] : element.getDelayName().getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, name.length);
+        out.write(name, 0, name.length);
+        writeVarint(out, zigzag(element.getRetry()));
+        writeVarint(out, element.getRetryDelay());
+        writeVarint(out, element.getRetried());
+        writeValue(out, element.getValue());
+        return out.toByteArray();
+    }
+
+    @Override
+    public DelayElement decode(byte[] bytes) {
+        if (!accept(bytes) || bytes[1] != VERSION) {
+            throw new SerializationException("不支持的compact格式");
+        }
+        int[] pos = {2};
+        int nameLength = (int) readVarint(bytes, pos);
+        String delayName = new String(bytes, pos[0], nameLength, StandardCharsets.UTF_8);
+        pos[0] += nameLength;
+        DelayElement element = new DelayElement(delayName, null);
+        element.setRetry((int) unzigzag(readVarint(bytes, pos)));
+        element.setRetryDelay((int) readVarint(bytes, pos));
+        element.setRetried((int) readVarint(bytes, pos));
+        element.setValue(readValue(bytes, pos));
+        return element;
+    }
+
+    @Override
+    public String readDelayName(byte[] bytes) {
+        if (!accept(bytes) || bytes[1] != VERSION) {
+            throw new SerializationException("不支持的compact格式");
+        }
+        int[] pos = {2};
+        int nameLength = (int) readVarint(bytes, pos);
+        return new String(bytes, pos[0], nameLength, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean matchDelayName(byte[] bytes, byte[] delayName) {
+        if (!accept(bytes) || bytes[1] != VERSION) {
+            return false;
+        }
+        // 头部：魔数 | 版本 | delayName长度(varint) | delayName，逐字节读取varint避免创建对象
+        int pos = 2;
+        int nameLength = 0;
+        int shift = 0;
+        while (pos < bytes.length) {
+            byte b = bytes[pos++];
+            nameLength |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        if (nameLength != delayName.length || pos + nameLength > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < nameLength; i++) {
+            if (bytes[pos + i] != delayName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            writeVarint(out, TYPE_NULL);
+        } else if (value instanceof String) {
+            writeVarint(out, TYPE_STRING);
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof Integer) {
+            writeVarint(out, TYPE_INTEGER);
+            writeVarint(out, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            writeVarint(out, TYPE_LONG);
+            writeVarint(out, zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            writeVarint(out, TYPE_BOOLEAN);
+            out.write((Boolean) value ? 1 : 0);
+        } else if (value instanceof Double) {
+            writeVarint(out, TYPE_DOUBLE);
+            long bits = Double.doubleToLongBits((Double) value);
+            for (int i = 7; i >= 0; i--) {
+                out.write((int) (bits >>> (i * 8)));
+            }
+        } else if (value instanceof byte[]) {
+            writeVarint(out, TYPE_BYTES);
+            out.write((byte[]) value, 0, ((byte[]) value).length);
+        } else {
+            Integer typeId = typeIds.get(value.getClass());
+            byte[] bytes;
+            if (typeId != null) {
+                writeVarint(out, typeId);
+                try {
+                    bytes = objectMapper.writeValueAsBytes(value);
+                } catch (IOException e) {
+                    throw new SerializationException("消息体序列化失败：" + e.getMessage(), e);
+                }
+            } else {
+                writeVarint(out, TYPE_FALLBACK);
+                bytes = fallback.serialize(value);
+            }
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private Object readValue(byte[] bytes, int[] pos) {
+        int type = (int) readVarint(bytes, pos);
+        int start = pos[0];
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+            case TYPE_INTEGER:
+                return (int) unzigzag(readVarint(bytes, pos));
+            case TYPE_LONG:
+                return unzigzag(readVarint(bytes, pos));
+            case TYPE_BOOLEAN:
+                return bytes[start] != 0;
+            case TYPE_DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (bytes[start + i] & 0xFF);
+                }
+                return Double.longBitsToDouble(bits);
+            case TYPE_BYTES:
+                return Arrays.copyOfRange(bytes, start, bytes.length);
+            case TYPE_FALLBACK:
+                return fallback.deserialize(Arrays.copyOfRange(bytes, start, bytes.length));
+            default:
+                Class<?> typeClass = typeClasses.get(type);
+                if (typeClass == null) {
+                    throw new SerializationException("未注册的类型ID：" + type);
+                }
+                try {
+                    return objectMapper.readValue(bytes, start, bytes.length - start, typeClass);
+                } catch (IOException e) {
+                    throw new SerializationException("消息体反序列化失败：" + e.getMessage(), e);
+                }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
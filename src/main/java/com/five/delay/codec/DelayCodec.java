@@ -0,0 +1,65 @@
+package com.five.delay.codec;
+
+import com.five.delay.handler.bean.DelayElement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 任务元素编解码器
+ * 内置 jackson（默认，兼容原有格式）与 compact（紧凑二进制）两种实现；实现该接口并注册为Spring Bean即可扩展，通过 delay.handler.codec 按名称选用
+ * @author luopeng
+ * @date 2026-10-18 15:40
+ * @remark
+ */
+public interface DelayCodec {
+
+    /**
+     * 编解码器名称，对应 delay.handler.codec 配置
+     * @return 名称
+     */
+    String getName();
+
+    /**
+     * 编码任务元素
+     * @param element 任务元素
+     * @return 写入zSet的字节
+     */
+    byte[] encode(DelayElement element);
+
+    /**
+     * 解码任务元素
+     * @param bytes zSet中的字节
+     * @return 任务元素
+     */
+    DelayElement decode(byte[] bytes);
+
+    /**
+     * 判断字节是否由该编解码器编码，用于迁移期间按格式识别读取（dual-read）
+     * @param bytes zSet中的字节
+     * @return 是否由该编解码器编码
+     */
+    boolean accept(byte[] bytes);
+
+    /**
+     * 不解码消息体，仅从元素头部读取delayName（轮询线程据此选择执行器，消息体在处理线程中解码）
+     * 默认实现解码整个元素，内置编解码器均只读取头部
+     * @param bytes zSet中的字节
+     * @return delayName
+     */
+    default String readDelayName(byte[] bytes) {
+        return decode(bytes).getDelayName();
+    }
+
+    /**
+     * 不解码消息体、不创建对象，判断元素的delayName是否等于给定值（轮询线程跳过本地服务无法消费的元素）
+     * 默认实现解码整个元素，内置编解码器均直接比较字节
+     * @param bytes zSet中的字节
+     * @param delayName delayName的UTF-8字节
+     * @return 是否相等
+     */
+    default boolean matchDelayName(byte[] bytes, byte[] delayName) {
+        String name = readDelayName(bytes);
+        return name != null && Arrays.equals(name.getBytes(StandardCharsets.UTF_8), delayName);
+    }
+}
@@ -0,0 +1,158 @@
+package com.five.delay.codec;
+
+import com.five.delay.handler.bean.DelayElement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务元素编解码入口，所有zSet元素的读写均经过此处
+ * 写入使用 delay.handler.codec 指定的编解码器；开启 delay.handler.codecDualRead（默认）时，读取按字节格式自动识别编解码器，
+ * 切换编解码器期间，新旧格式的元素均可被消费
+ * 迁移步骤：所有节点升级（codecDualRead=true）后，再将 codec 切换为 compact
+ * @author luopeng
+ * @date 2026-10-18 15:50
+ * @remark
+ */
+@Component
+public class DelayElementCodec {
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private Environment environment;
+    /**
+     * 自定义编解码器
+     */
+    @Autowired(required = false)
+    private List<DelayCodec> customCodecs = Collections.emptyList();
+
+    /**
+     * 写入使用的编解码器名称：jackson（默认）、compact 或自定义编解码器名称
+     */
+    private @Value("${delay.handler.codec:jackson}")
+    String codecName;
+    /**
+     * 读取时是否按字节格式自动识别编解码器
+     */
+    private @Value("${delay.handler.codecDualRead:true}")
+    boolean dualRead;
+
+    private final List<DelayCodec> codecs = new ArrayList<DelayCodec>();
+    private DelayCodec writeCodec;
+    private CompactDelayCodec compactCodec;
+    /**
+     * delayName的UTF-8字节缓存
+     */
+    private final Map<String, byte[]> nameBytes = new ConcurrentHashMap<String, byte[]>();
+
+    @PostConstruct
+    public void init() throws Exception {
+        compactCodec = new CompactDelayCodec(redisTemplate.getValueSerializer());
+        // delay.handler.codecTypes: 类型ID与消息体类名
+        Map<Integer, String> types = Binder.get(environment)
+                .bind("delay.handler.codec-types", Bindable.mapOf(Integer.class, String.class))
+                .orElse(Collections.<Integer, String>emptyMap());
+        for (Map.Entry<Integer, String> type : types.entrySet()) {
+            compactCodec.registerType(type.getKey(), ClassUtils.forName(type.getValue(), ClassUtils.getDefaultClassLoader()));
+        }
+        codecs.addAll(customCodecs);
+        codecs.add(new JacksonDelayCodec(redisTemplate.getValueSerializer()));
+        codecs.add(compactCodec);
+        for (DelayCodec codec : codecs) {
+            if (codec.getName().equals(codecName)) {
+                writeCodec = codec;
+                break;
+            }
+        }
+        if (writeCodec == null) {
+            throw new Exception("不存在名称为[" + codecName + "]的任务元素编解码器！");
+        }
+    }
+
+    /**
+     * 注册compact编解码器的消息体类型
+     * @param typeId 类型ID，需大于等于64
+     * @param type 消息体类型
+     */
+    public void registerType(int typeId, Class<?> type) {
+        compactCodec.registerType(typeId, type);
+    }
+
+    public byte[] encode(DelayElement element) {
+        return writeCodec.encode(element);
+    }
+
+    public DelayElement decode(byte[] bytes) {
+        return codecOf(bytes).decode(bytes);
+    }
+
+    /**
+     * 不解码消息体，仅读取元素的delayName
+     * @param bytes zSet中的字节
+     * @return delayName
+     */
+    public String readDelayName(byte[] bytes) {
+        return codecOf(bytes).readDelayName(bytes);
+    }
+
+    /**
+     * 不解码消息体，判断元素的delayName是否在给定范围内
+     * @param bytes zSet中的字节
+     * @param delayNames 可消费的delayName
+     * @return 是否可消费
+     */
+    public boolean isConsumable(byte[] bytes, Collection<String> delayNames) {
+        DelayCodec codec = findCodec(bytes);
+        if (codec == null) {
+            // 无法识别的格式（如消息体已被其他节点认领删除的消息ID）
+            return false;
+        }
+        for (String delayName : delayNames) {
+            if (codec.matchDelayName(bytes, nameBytes.computeIfAbsent(delayName, name -> name.getBytes(StandardCharsets.UTF_8)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DelayCodec codecOf(byte[] bytes) {
+        if (!dualRead) {
+            return writeCodec;
+        }
+        DelayCodec codec = findCodec(bytes);
+        if (codec == null) {
+            throw new SerializationException("无法识别的任务元素格式");
+        }
+        return codec;
+    }
+
+    private DelayCodec findCodec(byte[] bytes) {
+        if (writeCodec.accept(bytes)) {
+            return writeCodec;
+        }
+        if (dualRead) {
+            for (DelayCodec codec : codecs) {
+                if (codec.accept(bytes)) {
+                    return codec;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.five.delay.codec;
+
+import com.five.delay.handler.bean.DelayElement;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Jackson编解码器（默认）：使用redisTemplate的value序列化器，即原有的JSON格式（含类型信息）
+ * @author luopeng
+ * @date 2026-10-18 15:40
+ * @remark
+ */
+public class JacksonDelayCodec implements DelayCodec {
+
+    public static final String NAME = "jackson";
+
+    /**
+     * JSON中delayName字段的前缀，与claim.lua中的匹配规则一致
+     */
+    private static final byte[] DELAY_NAME_FIELD = "\"delayName\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisSerializer serializer;
+
+    public JacksonDelayCodec(RedisSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(DelayElement element) {
+        return serializer.serialize(element);
+    }
+
+    @Override
+    public DelayElement decode(byte[] bytes) {
+        return (DelayElement) serializer.deserialize(bytes);
+    }
+
+    @Override
+    public boolean accept(byte[] bytes) {
+        // JSON对象或带类型信息的数组
+        return bytes != null && bytes.length > 0 && (bytes[0] == '{' || bytes[0] == '[');
+    }
+
+    @Override
+    public String readDelayName(byte[] bytes) {
+        int start = delayNameStart(bytes);
+        if (start < 0) {
+            return decode(bytes).getDelayName();
+        }
+        int end = start;
+        while (end < bytes.length && bytes[end] != '"') {
+            end++;
+        }
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean matchDelayName(byte[] bytes, byte[] delayName) {
+        int start = delayNameStart(bytes);
+        if (start < 0) {
+            return DelayCodec.super.matchDelayName(bytes, delayName);
+        }
+        if (start + delayName.length >= bytes.length || bytes[start + delayName.length] != '"') {
+            return false;
+        }
+        for (int i = 0; i < delayName.length; i++) {
+            if (bytes[start + i] != delayName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查找delayName值的起始位置
+     * @param bytes zSet中的字节
+     * @return 起始位置，不存在时返回-1
+     */
+    private int delayNameStart(byte[] bytes) {
+        int last = bytes.length - DELAY_NAME_FIELD.length;
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while (j < DELAY_NAME_FIELD.length && bytes[i + j] == DELAY_NAME_FIELD[j]) {
+                j++;
+            }
+            if (j == DELAY_NAME_FIELD.length) {
+                return i + j;
+            }
+        }
+        return -1;
+    }
+}
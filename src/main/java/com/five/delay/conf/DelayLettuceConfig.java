@@ -0,0 +1,55 @@
+package com.five.delay.conf;
+
+import cn.hutool.core.util.StrUtil;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Lettuce 客户端配置
+ * delay.handler.pollEngine=lettuce 时，为异步轮询引擎创建独立的Lettuce客户端，连接参数与 {@link DelayRedisConfig} 相同
+ *
+ * @conditional
+ *  classpath中存在Lettuce，且 delay.handler.pollEngine=lettuce 时加载
+ * @author luopeng
+ * @date 2026-10-18 12:10
+ * @remark
+ */
+@Configuration
+@ConditionalOnClass(name = "io.lettuce.core.RedisClient")
+@ConditionalOnProperty(prefix = "delay.handler", name = "pollEngine", havingValue = DelayPollModeConf.POLL_ENGINE_LETTUCE)
+public class DelayLettuceConfig {
+
+    private @Value("${spring.redis.jedis.pool.database:0}")
+    int database;
+    private @Value("${spring.redis.host}")
+    String hostName;
+    private @Value("${spring.redis.port:6379}")
+    int port;
+    private @Value("${spring.redis.password:}")
+    String password;
+    /**
+     * 命令超时时长，如 60s、500ms
+     */
+    private @Value("${spring.redis.timeout:60s}")
+    Duration timeout;
+
+    @Bean(name = "delayLettuceClient", destroyMethod = "shutdown")
+    public RedisClient delayLettuceClient() {
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(hostName)
+                .withPort(port)
+                .withDatabase(database)
+                .withTimeout(timeout);
+        if (StrUtil.isNotEmpty(password)) {
+            builder.withPassword(password.toCharArray());
+        }
+        return RedisClient.create(builder.build());
+    }
+}
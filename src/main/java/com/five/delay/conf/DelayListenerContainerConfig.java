@@ -0,0 +1,28 @@
+package com.five.delay.conf;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 发布/订阅监听容器配置
+ * 用于接收key轮询配置变更等通知
+ * @author luopeng
+ * @date 2026-10-18 11:40
+ * @remark
+ */
+@Configuration
+public class DelayListenerContainerConfig {
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    @Bean(name = "delayListenerContainer")
+    public RedisMessageListenerContainer delayListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisTemplate.getConnectionFactory());
+        return container;
+    }
+}
@@ -35,4 +35,114 @@ public interface DelayPollModeConf {
      */
     String DELAY_METADATA_HANDLER_MAP = "delay.meta.handler";
 
-}
\ No newline at end of file
+    /**
+     * 消息索引，以hash存储，field为消息ID，value为任务key（hash存储方式），用于按消息ID取消、修改任务
+     */
+    String DELAY_MESSAGE_INDEX = "delay.message.index";
+
+    /**
+     * 消息索引中记录去重key的field后缀，field为 消息ID + .dedup，value为去重key（去重的消息），用于修改到期时间时同步去重key的过期时间
+     */
+    String DEDUP_INDEX_FIELD_SUFFIX = ".dedup";
+
+    /**
+     * 业务key去重key前缀，完整key为 delay.dedup.延迟任务名:去重key，以hash存储当前有效的任务key与元素，在任务到期时过期
+     */
+    String DEDUP_KEY_PREFIX = "delay.dedup.";
+
+    /**
+     * 任务key对应的轮询配置key后缀，配置以hash存储
+     */
+    String CONFIG_KEY_SUFFIX = ".config.hash";
+
+    /**
+     * 任务key对应的租约key后缀，租约以zSet存储，score为租约到期时间戳
+     */
+    String LEASE_KEY_SUFFIX = ".inflight";
+
+    /**
+     * 任务key对应的节点表key后缀（节点表key为 任务key + .nodes. + 消费组），节点表以hash存储，field为节点ID，value为节点过期时间戳
+     */
+    String NODES_KEY_SUFFIX = ".nodes";
+
+    /**
+     * 任务key对应的消息体key后缀，消息体以hash存储，field为消息ID，value为任务元素（hash存储方式）
+     */
+    String PAYLOAD_KEY_SUFFIX = ".payload";
+
+    /**
+     * 任务key对应的停放key后缀，无法解码的任务元素以原始字节移入停放key(zSet)，score为原到期时间戳，不再投递，需人工处理
+     */
+    String PARKED_KEY_SUFFIX = ".parked";
+
+    /**
+     * key轮询配置变更通知频道，消息内容为任务key
+     */
+    String DELAY_CONFIG_CHANNEL = "delay.config.changed";
+
+    /**
+     * 新任务早于队首的通知频道，消息内容为"score:任务key"
+     */
+    String DELAY_HEAD_CHANNEL = "delay.head.changed";
+
+    /**
+     * 到期任务认领方式：Lua脚本一次性选取、删除并返回到期任务(默认)
+     */
+    String CLAIM_MODE_SCRIPT = "script";
+
+    /**
+     * 到期任务认领方式：range获取任务后逐个ZREM竞争认领
+     */
+    String CLAIM_MODE_RANGE = "range";
+
+    /**
+     * 到期任务认领方式：Lua脚本将到期任务移入租约key，处理成功后确认，租约到期未确认的任务被放回任务key（至少一次）
+     */
+    String CLAIM_MODE_LEASE = "lease";
+
+
+    /**
+     * 轮询调度方式：按 rate/emptyRate 固定间隔轮询(默认)
+     */
+    String SCHEDULE_MODE_FIXED = "fixed";
+
+    /**
+     * 轮询调度方式：按key中最早任务的到期时间轮询，新任务早于队首时提前唤醒
+     */
+    String SCHEDULE_MODE_NEXT_DUE = "nextDue";
+
+    /**
+     * 轮询引擎：通过redisTemplate同步认领，轮询线程等待Redis返回(默认)
+     */
+    String POLL_ENGINE_BLOCKING = "blocking";
+
+    /**
+     * 轮询引擎：通过Lettuce异步API认领，所有key的认领命令在同一连接上流水线发送，轮询线程不等待Redis返回
+     */
+    String POLL_ENGINE_LETTUCE = "lettuce";
+
+    /**
+     * 任务存储方式：zSet元素即任务元素(默认)
+     */
+    String STORE_MODE_INLINE = "inline";
+
+    /**
+     * 任务存储方式：zSet元素为消息ID，任务元素存储在消息体key(hash)中
+     */
+    String STORE_MODE_HASH = "hash";
+
+    /**
+     * 去重策略：保留到期时间较早的任务(默认)，重复发送的任务不写入
+     */
+    String DEDUP_KEEP_EARLIEST = "keepEarliest";
+
+    /**
+     * 去重策略：保留到期时间较晚的任务
+     */
+    String DEDUP_KEEP_LATEST = "keepLatest";
+
+    /**
+     * 去重策略：新任务替换原任务（消息体与到期时间）
+     */
+    String DEDUP_REPLACE = "replace";
+}
@@ -0,0 +1,74 @@
+package com.five.delay.engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以许可数限制已接收任务数（执行中 + 等待执行）的执行器，用于本身不限制队列长度的线程池（ForkJoinPool、虚拟线程）
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public class BoundedDelayExecutor implements DelayExecutor {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int capacity;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param executor 线程池
+     * @param capacity 最多接收的任务数（执行中 + 等待执行）
+     */
+    public BoundedDelayExecutor(ExecutorService executor, int capacity) {
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.permits = new Semaphore(this.capacity);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("执行器已饱和，最多接收" + capacity + "个任务");
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    active.incrementAndGet();
+                    try {
+                        command.run();
+                    } finally {
+                        active.decrementAndGet();
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public int availableCapacity() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return Math.max(0, capacity - permits.availablePermits() - active.get());
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
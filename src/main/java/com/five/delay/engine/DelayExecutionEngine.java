@@ -0,0 +1,28 @@
+package com.five.delay.engine;
+
+/**
+ * 任务执行引擎，创建处理器调用所用的执行器（公共执行器与各独立线程池）
+ * 内置 fixed（默认，固定线程池）、forkJoin（工作窃取线程池）、virtual（每条任务一个虚拟线程，需JDK 21+），
+ * 可通过实现此接口并注册为Spring Bean扩展，delay.handler.executionEngine 配置为其名称
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public interface DelayExecutionEngine {
+
+    /**
+     * 执行引擎名称，对应 delay.handler.executionEngine
+     * @return 名称
+     */
+    String getName();
+
+    /**
+     * 创建执行器
+     * @param threadPrefix 线程名前缀
+     * @param corePoolSize 核心线程数
+     * @param maxPoolSize 最大线程数
+     * @param queueCapacity 队列容量
+     * @return 执行器
+     */
+    DelayExecutor create(String threadPrefix, int corePoolSize, int maxPoolSize, int queueCapacity);
+}
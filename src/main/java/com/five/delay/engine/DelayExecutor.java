@@ -0,0 +1,41 @@
+package com.five.delay.engine;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 处理器调用的执行器，可接收的任务数有上限，剩余容量反馈给轮询器
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public interface DelayExecutor extends Executor {
+
+    /**
+     * 提交任务
+     * @param command 任务
+     * @throws RejectedExecutionException 执行器已饱和
+     */
+    @Override
+    void execute(Runnable command);
+
+    /**
+     * 当前可接收的任务数
+     * @return 可接收的任务数
+     */
+    int availableCapacity();
+
+    /**
+     * 等待执行的任务数
+     * @return 任务数
+     */
+    int getQueueSize();
+
+    /**
+     * 正在执行的任务数
+     * @return 任务数
+     */
+    int getActiveCount();
+
+    void shutdown();
+}
@@ -0,0 +1,31 @@
+package com.five.delay.engine;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fixed执行引擎（默认）：平台线程的 {@link ThreadPoolExecutor}，有界队列
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public class FixedExecutionEngine implements DelayExecutionEngine {
+
+    public static final String NAME = "fixed";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DelayExecutor create(String threadPrefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        return new ThreadPoolDelayExecutor(new ThreadPoolExecutor(corePoolSize, Math.max(corePoolSize, maxPoolSize),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+                new ThreadFactoryBuilder().setNamePrefix(threadPrefix).build()));
+    }
+}
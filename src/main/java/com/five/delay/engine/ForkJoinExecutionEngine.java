@@ -0,0 +1,34 @@
+package com.five.delay.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * forkJoin执行引擎：工作窃取的 {@link ForkJoinPool}（FIFO模式），并行度等于最大线程数，适合处理耗时短、CPU密集的处理器
+ * 已接收的任务数（执行中 + 等待执行）不超过 最大线程数 + 队列容量
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public class ForkJoinExecutionEngine implements DelayExecutionEngine {
+
+    public static final String NAME = "forkJoin";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DelayExecutor create(String threadPrefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        int parallelism = Math.max(1, Math.max(corePoolSize, maxPoolSize));
+        AtomicInteger index = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(threadPrefix + index.getAndIncrement());
+            return thread;
+        }, null, true);
+        return new BoundedDelayExecutor(pool, parallelism + Math.max(0, queueCapacity));
+    }
+}
@@ -0,0 +1,47 @@
+package com.five.delay.engine;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 基于有界队列 {@link ThreadPoolExecutor} 的执行器
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public class ThreadPoolDelayExecutor implements DelayExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public ThreadPoolDelayExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * 空闲线程数 + 队列剩余容量
+     */
+    @Override
+    public int availableCapacity() {
+        int idleThreads = Math.max(0, executor.getMaximumPoolSize() - executor.getActiveCount());
+        return idleThreads + executor.getQueue().remainingCapacity();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
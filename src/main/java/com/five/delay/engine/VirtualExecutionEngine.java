@@ -0,0 +1,74 @@
+package com.five.delay.engine;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * virtual执行引擎：每条任务一个虚拟线程，适合阻塞于数据库、HTTP等I/O的处理器，不需要按并发数配置线程池
+ * 同时处理的任务数不超过 最大线程数 + 队列容量（与fixed引擎可接收的任务数相同），可调大 processQueueCapacity、queueCapacity 提高并发
+ * 项目以Java 8编译，虚拟线程API通过反射调用，运行在JDK 21以下时不可用
+ * @author luopeng
+ * @date 2026-10-18 19:40
+ * @remark
+ */
+public class VirtualExecutionEngine implements DelayExecutionEngine {
+
+    public static final String NAME = "virtual";
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // JDK 19、20中虚拟线程为预览特性，未开启预览时抛出异常
+            ofVirtual.invoke(null);
+        } catch (Throwable e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     * @return true：支持
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DelayExecutor create(String threadPrefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if (!isSupported()) {
+            throw new IllegalStateException("当前JDK不支持虚拟线程，virtual执行引擎需要JDK 21及以上版本");
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadPrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            ExecutorService executor = (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+            return new BoundedDelayExecutor(executor, Math.max(corePoolSize, maxPoolSize) + Math.max(0, queueCapacity));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("虚拟线程执行器创建失败：" + e.getMessage(), e);
+        }
+    }
+}
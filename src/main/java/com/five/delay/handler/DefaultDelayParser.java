@@ -3,15 +3,38 @@ package com.five.delay.handler;
 import cn.hutool.core.util.StrUtil;
 import com.five.delay.annotation.DelayListener;
 import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.handler.bean.DelayKeyConfig;
+import com.five.delay.utils.ScriptArgsSerializer;
+import com.five.delay.utils.ShardUtils;
 import com.five.delay.utils.SpringContextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.lang.reflect.Method;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 延迟任务轮询处理器
@@ -24,8 +47,54 @@ import java.util.List;
 public class DefaultDelayParser implements DelayParser {
     private static Logger logger = LoggerFactory.getLogger(DefaultDelayParser.class);
 
+    /**
+     * 配置项：key中任务的最小延迟时间
+     */
+    private static final String CONFIG_DELAY = "delay";
+    /**
+     * 配置项：key上所有任务的轮询频率
+     */
+    private static final String CONFIG_RATE = "rate";
+    /**
+     * 配置项：key当前空任务轮询频率
+     */
+    private static final String CONFIG_EMPTY_RATE = "emptyRate";
+    /**
+     * 配置项：配置变更标志 (1:配置变更；0:配置无变更)
+     */
+    private static final String CONFIG_CHANGED = "changed";
+
+    private static final DefaultRedisScript<Long> CONFIG_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        CONFIG_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/config.lua")));
+        CONFIG_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final DefaultRedisScript<Long> EMPTY_RATE_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        EMPTY_RATE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/empty_rate.lua")));
+        EMPTY_RATE_SCRIPT.setResultType(Long.class);
+    }
+
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer delayListenerContainer;
+    @Autowired
+    private Environment environment;
+
+    /**
+     * 本地缓存的key轮询配置最长有效时间(毫秒)，用于兜底订阅通知丢失的情况
+     */
+    private @Value("${delay.handler.configRefreshInterval:60000}")
+    long configRefreshInterval;
+
+    /**
+     * 本地缓存的key轮询配置
+     */
+    private final ConcurrentHashMap<String, DelayKeyConfig> configCache = new ConcurrentHashMap<String, DelayKeyConfig>();
 
     @Override
     public String analyseDelay(Method method, Object bean) throws Exception {
@@ -35,12 +104,26 @@ public class DefaultDelayParser implements DelayParser {
         String key = delayListener.task();
         int retry = delayListener.retry();
         int retryDelay = delayListener.retryDelay();
+        int concurrency = delayListener.concurrency();
+        int timeout = delayListener.timeout();
 
         // 1.delayName应该是独一无二的
         if (delays.contains(delayName)) {
             throw new Exception("不允许在本地配置相同的延迟任务名["+delayName+"]");
         }
 
+        if (method.getParameterCount() != 1) {
+            throw new Exception("延迟任务["+delayName+"]处理方法必须有且只有一个参数！");
+        }
+
+        if (concurrency < 0 || timeout < 0) {
+            throw new Exception("延迟任务["+delayName+"]concurrency、timeout不能小于0！");
+        }
+
+        if (DelayHandlerInvoker.isBatch(method) && (delayListener.maxBatchSize() < 1 || delayListener.maxBatchWaitMs() < 0)) {
+            throw new Exception("延迟任务["+delayName+"]maxBatchSize不能小于1、maxBatchWaitMs不能小于0！");
+        }
+
         if (StrUtil.isEmpty(mode) || mode.equals(DelayPollModeConf.MODE_EXCLUSIVE)) {
             // 独立的轮询线程
             key = delayName;
@@ -57,6 +140,20 @@ public class DefaultDelayParser implements DelayParser {
         } else {
             throw new Exception("延迟任务["+delayName+"]mode类型配置错误！");
         }
+
+        // 分片数：注解配置优先，其次为 delay.handler.shards 中key的配置
+        int shards = delayListener.shards();
+        if (shards <= 0) {
+            shards = getConfigShards().getOrDefault(key, 1);
+        }
+        if (shards < 1) {
+            throw new Exception("延迟任务["+delayName+"]shards配置错误！");
+        }
+        String taskKey = DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + key;
+        Integer keyShard = keyShards.get(taskKey);
+        if (keyShard != null && keyShard != shards) {
+            throw new Exception("延迟任务["+delayName+"]的分片数"+shards+"与key["+key+"]上其他延迟任务的分片数"+keyShard+"不一致！");
+        }
         // 保证在不同的服务中，延迟任务全局只有唯一的消费窗口，允许在同一服务的不同节点消费
         String contextId = SpringContextUtils.applicationContext.getId();
 
@@ -65,127 +162,131 @@ public class DefaultDelayParser implements DelayParser {
             // 存在相同的delayName，且contextId不同时，错误。如果是由于主动修改了contextId导致，可以删除delay.application.map中指定的K/V
             throw new Exception("延迟任务[" + delayName + "]在"+endpoint.getConsumeContextId()+"服务中已存在消费窗口！");
         }
-        endpoint = new MethodDelayHandlerEndpoint(delayName, key, retry, retryDelay, contextId, method.getName(), method.getParameterTypes(), bean);
+        if (endpoint != null && endpoint.getShards() > shards) {
+            logger.warn("延迟任务["+delayName+"]的分片数由"+endpoint.getShards()+"减少为"+shards+"，已移除分片中的任务将不再被轮询");
+        }
+        endpoint = new MethodDelayHandlerEndpoint(delayName, key, retry, retryDelay, contextId, method.getName(), method.getParameterTypes(), bean, shards);
         delays.add(delayName);
+        invokers.put(delayName, new DelayHandlerInvoker(delayName, key, method, bean,
+                concurrency, delayListener.queueCapacity(), delayListener.bulkhead(), timeout,
+                delayListener.maxBatchSize(), delayListener.maxBatchWaitMs()));
+        keyShards.put(taskKey, shards);
+        for (String shardKey : ShardUtils.shardKeys(taskKey, shards)) {
+            keyDelays.computeIfAbsent(shardKey, k -> new HashSet<String>()).add(delayName);
+        }
         redisTemplate.opsForHash().put(DelayPollModeConf.DELAY_METADATA_HANDLER_MAP, delayName, endpoint);
         return key;
     }
 
     /**
-     * 校验、配置key
+     * 获得 delay.handler.shards 中配置的key分片数
+     * delay.handler.shards:
+     *   key1: 4
+     * @return key（不含前缀）与分片数的对应关系
+     */
+    private Map<String, Integer> getConfigShards() {
+        return Binder.get(environment)
+                .bind("delay.handler.shards", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Collections.<String, Integer>emptyMap());
+    }
+
+    /**
+     * 获得任务key对应的配置key
+     * 配置以hash存储，字段：delay 最小延迟时间；rate 轮询频率；emptyRate 空任务轮询频率；changed 配置变更标志
      * @param key 任务key
-     * @param period key配置的默认轮询间隙时长
      * @return 任务key 对应的配置key
      */
-    private String verify(String key, int period){
-        String configKey = key + ".config";
-        // TODO 是否需要考虑并发情况？
-        if (!redisTemplate.hasKey(configKey)) {
-            // for modify [3] (1:配置变更；0:配置无变更)
-            redisTemplate.opsForList().leftPush(configKey, 1);
-            // for empty rate [2]
-            redisTemplate.opsForList().leftPush(configKey, Integer.MAX_VALUE);
-            // for rate [1]
-            redisTemplate.opsForList().leftPush(configKey, period);
-            // for delay [0]
-            redisTemplate.opsForList().leftPush(configKey, Integer.MAX_VALUE);
-        }
-        return configKey;
+    private String configKey(String key){
+        return key + DelayPollModeConf.CONFIG_KEY_SUFFIX;
     }
 
     @Override
     public void setTaskMinDelay(String key, int delay) {
-        String configKey = verify(key, delay);
-        int delayValue = Integer.valueOf((Integer) redisTemplate.opsForList().index(configKey, 0));
-        if(delay < delayValue) {
-            redisTemplate.opsForList().set(configKey, 0, delay);
-            redisTemplate.opsForList().set(configKey, 3, 1);
-        }
-    }
-
-    /**
-     * 获取key中任务的最小延期时间
-     * @param configList 配置信息List
-     * @return key中任务的最小延期时间
-     */
-    private int getTaskMinDelay(List configList) {
-        if (configList == null || configList.isEmpty()) {
-            return -1;
-        }
-        return (Integer)configList.get(0);
+        redisTemplate.execute(CONFIG_SCRIPT, ScriptArgsSerializer.INSTANCE, RedisSerializer.byteArray(),
+                Collections.singletonList(configKey(key)), CONFIG_DELAY, delay, key);
     }
 
     @Override
     public void setTaskRate(String key, int rate) {
-        String configKey = verify(key, rate);
-        int rateValue = Integer.valueOf((Integer) redisTemplate.opsForList().index(configKey, 1));
-        if(rate < rateValue) {
-            redisTemplate.opsForList().set(configKey, 1, rate);
-            redisTemplate.opsForList().set(configKey, 3, 1);
-        }
+        redisTemplate.execute(CONFIG_SCRIPT, ScriptArgsSerializer.INSTANCE, RedisSerializer.byteArray(),
+                Collections.singletonList(configKey(key)), CONFIG_RATE, rate, key);
     }
 
     /**
-     * 获取key上所有任务的轮询频率
-     * @param configList 配置信息List
-     * @return key上所有任务的轮询频率
+     * 订阅key轮询配置变更通知，收到通知后清除本地缓存的配置
      */
-    private int getTaskRate(List configList) {
-        if (configList == null || configList.isEmpty()) {
-            return -1;
-        }
-        return (Integer)configList.get(1);
+    @PostConstruct
+    public void subscribeConfigChange() {
+        delayListenerContainer.addMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message, byte[] pattern) {
+                configCache.remove(new String(message.getBody(), StandardCharsets.UTF_8));
+            }
+        }, new ChannelTopic(DelayPollModeConf.DELAY_CONFIG_CHANNEL));
     }
 
     /**
-     * 获取key当前空任务轮询频率
-     * @param configList 配置信息List
-     * @return key当前空任务轮询频率
+     * 获取key的轮询配置
+     * 优先使用本地缓存；缓存在收到配置变更通知、或超过 configRefreshInterval 后失效，失效后一次 HGETALL 重新加载
+     * @param key 任务key
+     * @return 配置信息
      */
-    private int getEmptyRate(List configList) {
-        if (configList == null || configList.isEmpty()) {
-            return -1;
+    public DelayKeyConfig getConfig(String key){
+        DelayKeyConfig config = configCache.get(key);
+        if (config != null && System.currentTimeMillis() - config.getLoadTime() < configRefreshInterval) {
+            return config;
         }
-        return (Integer)configList.get(2);
+        config = loadConfig(key);
+        configCache.put(key, config);
+        return config;
     }
 
     /**
-     * 配置是否变更
-     * 配置变更表示空任务轮询频率需要重新计算
-     * @param configList 配置信息List
-     * @return 变更标志 (1:配置变更；0:配置无变更)
+     * 从Redis读取key的配置信息，一次 HGETALL
+     * @param key 任务key
+     * @return 配置信息
      */
-    private boolean isChange(List configList) {
-        if (configList == null || configList.isEmpty()) {
-            return false;
-        }
-        int tag = (Integer)configList.get(3);
-        if (tag == 1) {
-            return true;
-        } else if (tag == 0) {
-            return false;
-        } else {
-            return false;
+    private DelayKeyConfig loadConfig(String key){
+        byte[] rawKey = redisTemplate.getKeySerializer().serialize(configKey(key));
+        Map<byte[], byte[]> entries = (Map<byte[], byte[]>) redisTemplate.execute(new RedisCallback<Map<byte[], byte[]>>() {
+            @Override
+            public Map<byte[], byte[]> doInRedis(RedisConnection connection) {
+                return connection.hGetAll(rawKey);
+            }
+        });
+        Map<String, String> config = new HashMap<String, String>();
+        if (entries != null) {
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                config.put(new String(entry.getKey(), StandardCharsets.UTF_8), new String(entry.getValue(), StandardCharsets.UTF_8));
+            }
         }
+        return new DelayKeyConfig(
+                getConfigValue(config, CONFIG_DELAY, Integer.MAX_VALUE),
+                getConfigValue(config, CONFIG_RATE, -1),
+                getConfigValue(config, CONFIG_EMPTY_RATE, Integer.MAX_VALUE),
+                // 未配置时视为变更
+                getConfigValue(config, CONFIG_CHANGED, 1) == 1);
     }
 
-    public List getConfigList(String key){
-        String configKey = verify(key, 0);
-        List configList = redisTemplate.opsForList().range(configKey, 0, -1);
-        return configList;
+    private int getConfigValue(Map<String, String> config, String field, int defaultValue) {
+        String value = config.get(field);
+        if (StrUtil.isEmpty(value)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
     }
 
     @Override
     public Integer calculationEmptyRate(String key) {
         // 判断配置是否变更过，未变更则不重新计算空任务轮询频率
-        List configList = getConfigList(key);
-        boolean change = isChange(configList);
+        DelayKeyConfig config = getConfig(key);
+        boolean change = config.isChanged();
         if(!change) {
-            int emptyRate = getEmptyRate(configList);
+            int emptyRate = config.getEmptyRate();
             return emptyRate;
         }
-        int taskMinDelay = getTaskMinDelay(configList);
-        int taskRate = getTaskRate(configList);
+        int taskMinDelay = config.getMinDelay();
+        int taskRate = config.getRate();
         if (taskMinDelay == Integer.MAX_VALUE) {
             // key中未插入延迟消息任务，不知道实际的消息最小延迟时间。直接使用当前轮询时间
             return taskRate;
@@ -197,14 +298,21 @@ public class DefaultDelayParser implements DelayParser {
             // 空任务轮询频率不得小于正常轮训频率
             rate = taskRate;
         }
-        int emptyRate = getEmptyRate(configList);
+        int emptyRate = config.getEmptyRate();
         if (rate < emptyRate) {
+            // 仅当配置仍为本次读取的值时写入并清除变更标志，避免覆盖计算期间其他节点写入的更小delay及其变更标志
+            Long updated = (Long) redisTemplate.execute(EMPTY_RATE_SCRIPT, ScriptArgsSerializer.INSTANCE, RedisSerializer.byteArray(),
+                    Collections.singletonList(configKey(key)), taskMinDelay, taskRate, rate);
+            if (updated == null || updated == 0) {
+                // 配置已变更，本次按正常轮询频率轮询，本地缓存保持变更状态，刷新配置后重新计算
+                return taskRate;
+            }
             logger.info("根据计算结果，重新计算emptyRate值："+rate+"，原emptyRate值为："+emptyRate);
-            String configKey = verify(key, 0);
-            redisTemplate.opsForList().set(configKey, 2, rate);
-            redisTemplate.opsForList().set(configKey, 3, 0);
             emptyRate = rate;
         }
+        // 本地缓存同步更新，下一次空任务轮询无需访问Redis
+        config.setEmptyRate(emptyRate);
+        config.setChanged(false);
         return emptyRate;
     }
 }
@@ -0,0 +1,139 @@
+package com.five.delay.handler;
+
+import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.utils.ScriptArgsSerializer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 延迟任务异步认领器
+ * 通过Lettuce异步API执行认领脚本，脚本与返回值解析同 {@link DelayClaimer}，调用方不等待Redis返回
+ * 所有key的认领命令共用一个连接，由Lettuce的事件循环流水线发送，不占用连接池中的连接
+ *
+ * @conditional
+ *  classpath中存在Lettuce，且 delay.handler.pollEngine=lettuce 时加载
+ * @author luopeng
+ * @date 2026-10-18 12:20
+ * @remark
+ */
+@Component
+@ConditionalOnClass(name = "io.lettuce.core.RedisClient")
+@ConditionalOnProperty(prefix = "delay.handler", name = "pollEngine", havingValue = DelayPollModeConf.POLL_ENGINE_LETTUCE)
+public class DelayAsyncClaimer {
+
+    @Autowired
+    private DelayClaimer delayClaimer;
+    @Autowired
+    @Qualifier("delayLettuceClient")
+    private RedisClient delayLettuceClient;
+
+    private StatefulRedisConnection<byte[], byte[]> connection;
+    /**
+     * 认领脚本（UTF-8编码）及其SHA1，与Redis缓存脚本时的计算方式一致，不受默认字符集影响
+     */
+    private byte[] claimScript;
+    private String claimScriptSha;
+
+    @PostConstruct
+    public void connect() {
+        connection = delayLettuceClient.connect(ByteArrayCodec.INSTANCE);
+        claimScript = DelayClaimer.CLAIM_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        claimScriptSha = connection.async().digest(claimScript);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 异步认领key中已到期的任务元素，同 {@link DelayClaimer#claim}
+     * @param key 任务key
+     * @param limit 单次认领的元素上限
+     * @return 认领结果，在Lettuce的事件循环线程中完成
+     */
+    public CompletableFuture<DelayClaimer.ClaimResult> claim(String key, int limit) {
+        return claim(Collections.singletonList(DelayClaimer.ClaimRequest.claim(key, limit))).thenApply(results -> results.get(0));
+    }
+
+    /**
+     * 以租约方式异步认领key中 lookAhead 时长内到期的任务元素，同 {@link DelayClaimer#lease}
+     * @param key 任务key
+     * @param limit 单次认领的元素上限
+     * @param lookAhead 预取时长(毫秒)
+     * @param leaseTimeout 租约时长(毫秒)
+     * @return 认领结果，在Lettuce的事件循环线程中完成
+     */
+    public CompletableFuture<DelayClaimer.ClaimResult> lease(String key, int limit, long lookAhead, long leaseTimeout) {
+        return claim(Collections.singletonList(DelayClaimer.ClaimRequest.lease(key, limit, lookAhead, leaseTimeout))).thenApply(results -> results.get(0));
+    }
+
+    /**
+     * 一次脚本调用依次异步认领多个key，同 {@link DelayClaimer#claim(List)}
+     * @param requests 各key的认领参数
+     * @return 与requests顺序一致的认领结果，在Lettuce的事件循环线程中完成
+     */
+    public CompletableFuture<List<DelayClaimer.ClaimResult>> claim(List<DelayClaimer.ClaimRequest> requests) {
+        long now = System.currentTimeMillis();
+        byte[][] keys = serialize(delayClaimer.claimKeys(requests));
+        byte[][] args = serialize(delayClaimer.claimArgs(now, requests));
+        return eval(keys, args).thenApply(reply -> delayClaimer.toResults(now, requests.size(), reply));
+    }
+
+    /**
+     * 以EVALSHA执行认领脚本，脚本未缓存（首次执行或Redis重启）时以EVAL执行并缓存脚本
+     */
+    private CompletableFuture<List<Object>> eval(byte[][] keys, byte[][] args) {
+        CompletableFuture<List<Object>> reply = new CompletableFuture<List<Object>>();
+        RedisAsyncCommands<byte[], byte[]> commands = connection.async();
+        commands.<List<Object>>evalsha(claimScriptSha, ScriptOutputType.MULTI, keys, args)
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        reply.complete(result);
+                    } else if (unwrap(e) instanceof RedisNoScriptException) {
+                        commands.<List<Object>>eval(claimScript, ScriptOutputType.MULTI, keys, args)
+                                .whenComplete((evalResult, evalError) -> {
+                                    if (evalError == null) {
+                                        reply.complete(evalResult);
+                                    } else {
+                                        reply.completeExceptionally(evalError);
+                                    }
+                                });
+                    } else {
+                        reply.completeExceptionally(e);
+                    }
+                });
+        return reply;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static byte[][] serialize(List<?> values) {
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = ScriptArgsSerializer.INSTANCE.serialize(values.get(i));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,42 @@
+package com.five.delay.handler;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 批量处理部分失败：批量处理方法抛出此异常时，只有failedIndexes中的消息按失败策略重试，其余消息视为处理成功
+ * <pre>
+ * &#64;DelayListener(name = "orderTimeout", maxBatchSize = 200)
+ * public void process(List&lt;String&gt; orderNos) {
+ *     List&lt;Integer&gt; failed = orderService.closeAll(orderNos);
+ *     if (!failed.isEmpty()) {
+ *         throw new DelayBatchException(failed);
+ *     }
+ * }
+ * </pre>
+ * @author luopeng
+ * @date 2026-10-18 20:10
+ * @remark
+ */
+public class DelayBatchException extends RuntimeException {
+
+    /**
+     * 处理失败的消息在列表中的下标
+     */
+    private final Set<Integer> failedIndexes;
+
+    public DelayBatchException(Collection<Integer> failedIndexes) {
+        this("批量处理部分失败：" + failedIndexes, failedIndexes);
+    }
+
+    public DelayBatchException(String message, Collection<Integer> failedIndexes) {
+        super(message);
+        this.failedIndexes = Collections.unmodifiableSet(new LinkedHashSet<Integer>(failedIndexes));
+    }
+
+    public Set<Integer> getFailedIndexes() {
+        return failedIndexes;
+    }
+}
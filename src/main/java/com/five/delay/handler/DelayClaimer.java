@@ -0,0 +1,472 @@
+package com.five.delay.handler;
+
+import com.five.delay.codec.DelayElementCodec;
+import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.handler.bean.DelayElement;
+import com.five.delay.handler.bean.DelayTuple;
+import com.five.delay.utils.ScriptArgsSerializer;
+import com.five.delay.utils.ShardUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 延迟任务认领器
+ * 通过Lua脚本在Redis服务端一次性完成：选取到期元素、删除元素、返回元素，避免多节点竞争ZREM带来的多次往返
+ * 租约方式认领时，元素移入租约key（任务key + .inflight），确认前节点宕机的元素在租约到期后由任意节点的认领放回任务key
+ * 确认({@link #ack})、归还({@link #release})、重试({@link #requeue})均为一次往返
+ * hash存储方式下，zSet元素为消息ID，认领脚本同时读取消息体key中的任务元素；确认、删除时同时删除消息体
+ *
+ * @author luopeng
+ * @date 2026-10-18 09:30
+ * @remark
+ */
+@Component
+public class DelayClaimer {
+
+    /**
+     * 单次认领时，最多扫描认领上限多少倍的到期元素（用于跳过本地服务无法消费的元素）
+     */
+    private static final int SCAN_FACTOR = 10;
+
+    static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<List>();
+
+    static {
+        CLAIM_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/claim.lua")));
+        CLAIM_SCRIPT.setResultType(List.class);
+    }
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        RELEASE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/release.lua")));
+        RELEASE_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final DefaultRedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        REMOVE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/remove.lua")));
+        REMOVE_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final DefaultRedisScript<Long> PARK_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        PARK_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/park.lua")));
+        PARK_SCRIPT.setResultType(Long.class);
+    }
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private DelayElementCodec delayElementCodec;
+
+    /**
+     * 认领key中已到期的任务元素，认领成功的元素已从key中删除
+     * @param key 任务key
+     * @param limit 单次认领的元素上限
+     * @return 认领结果
+     */
+    public ClaimResult claim(String key, int limit) {
+        return claim(Collections.singletonList(ClaimRequest.claim(key, limit))).get(0);
+    }
+
+    /**
+     * 以租约方式认领key中 lookAhead 时长内到期的任务元素，认领成功的元素移入租约key
+     * 租约在 max(元素score, 当前时间戳) + leaseTimeout 时到期，到期前需通过 {@link #ack} 确认，或通过 {@link #release} 归还
+     * @param key 任务key
+     * @param limit 单次认领的元素上限
+     * @param lookAhead 预取时长(毫秒)
+     * @param leaseTimeout 租约时长(毫秒)
+     * @return 认领结果
+     */
+    public ClaimResult lease(String key, int limit, long lookAhead, long leaseTimeout) {
+        return claim(Collections.singletonList(ClaimRequest.lease(key, limit, lookAhead, leaseTimeout))).get(0);
+    }
+
+    /**
+     * 一次脚本调用依次认领多个key（多路复用轮询），各key的认领相互独立
+     * @param requests 各key的认领参数
+     * @return 与requests顺序一致的认领结果
+     */
+    public List<ClaimResult> claim(List<ClaimRequest> requests) {
+        long now = System.currentTimeMillis();
+        List<Object> reply = (List<Object>) redisTemplate.execute(CLAIM_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), claimKeys(requests), claimArgs(now, requests).toArray());
+        return toResults(now, requests.size(), reply);
+    }
+
+    /**
+     * 认领脚本的KEYS
+     * @param requests 各key的认领参数
+     * @return 依次为各key的任务key、租约key、消息体key、消息索引key
+     */
+    List<String> claimKeys(List<ClaimRequest> requests) {
+        List<String> keys = new ArrayList<String>(requests.size() * 4);
+        for (ClaimRequest request : requests) {
+            keys.add(request.key);
+            keys.add(leaseKey(request.key));
+            keys.add(payloadKey(request.key));
+            keys.add(DelayPollModeConf.DELAY_MESSAGE_INDEX);
+        }
+        return keys;
+    }
+
+    /**
+     * 认领脚本的ARGV
+     * @param now 当前时间戳
+     * @param requests 各key的认领参数
+     * @return 脚本参数，由 {@link ScriptArgsSerializer} 序列化
+     */
+    List<Object> claimArgs(long now, List<ClaimRequest> requests) {
+        List<Object> args = new ArrayList<Object>();
+        args.add(now);
+        for (ClaimRequest request : requests) {
+            args.add(now + request.lookAhead);
+            args.add(request.limit);
+            args.add(request.limit * SCAN_FACTOR);
+            args.add(request.leaseTimeout);
+            Collection<String> delayNames = consumableDelays(request.key);
+            if (delayNames == null) {
+                args.add(0);
+            } else {
+                args.add(delayNames.size());
+                args.addAll(delayNames);
+            }
+        }
+        return args;
+    }
+
+    /**
+     * 解析认领脚本的返回值
+     * @param now 认领时使用的当前时间戳
+     * @param size 认领的key个数
+     * @param reply 脚本返回值，每个key一个数组，整数为Long，字符串为byte[]
+     * @return 各key的认领结果
+     */
+    List<ClaimResult> toResults(long now, int size, List<Object> reply) {
+        List<ClaimResult> results = new ArrayList<ClaimResult>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(toResult(now, reply == null || i >= reply.size() ? null : (List<Object>) reply.get(i)));
+        }
+        return results;
+    }
+
+    private ClaimResult toResult(long now, List<Object> reply) {
+        if (reply == null || reply.size() < 3) {
+            return new ClaimResult(now, 0, null, 0, Collections.<DelayTuple>emptyList());
+        }
+
+        // 元素在处理线程中解码
+        List<DelayTuple> tuples = new ArrayList<DelayTuple>((reply.size() - 3) / 3);
+        for (int i = 3; i + 2 < reply.size(); i += 3) {
+            byte[] payload = (byte[]) reply.get(i + 2);
+            tuples.add(new DelayTuple((byte[]) reply.get(i), payload.length == 0 ? null : payload, toScore(reply.get(i + 1)), delayElementCodec));
+        }
+        return new ClaimResult(now, (Long) reply.get(0), toScore(reply.get(1)), ((Long) reply.get(2)).intValue(), tuples);
+    }
+
+    /**
+     * 确认租约：从租约key中删除元素（及其消息体）
+     * @param key 任务key
+     * @param tuple 以租约方式认领的元素
+     * @return true：租约仍由本节点持有，可以处理；false：租约已过期并被放回任务key（或已确认），不应再处理
+     */
+    public boolean ack(String key, DelayTuple tuple) {
+        return remove(leaseKey(key), key, tuple);
+    }
+
+    /**
+     * 归还租约：将仍由本节点持有租约的元素按原score放回任务key
+     * @param key 任务key
+     * @param tuples 以租约方式认领的元素
+     * @return 放回的元素个数
+     */
+    public Long release(String key, Collection<DelayTuple> tuples) {
+        if (tuples.isEmpty()) {
+            return 0L;
+        }
+        List<Object> args = new ArrayList<Object>(tuples.size() * 4);
+        for (DelayTuple tuple : tuples) {
+            args.add(tuple.getRaw());
+            args.add(tuple.getScore().longValue());
+            args.add(tuple.getRaw());
+            args.add(null);
+        }
+        return (Long) redisTemplate.execute(RELEASE_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), Arrays.asList(key, leaseKey(key), payloadKey(key)), args.toArray());
+    }
+
+    /**
+     * 重试：原子地删除租约并将更新后的元素放回任务key
+     * @param key 任务key
+     * @param tuple 以租约方式认领的元素
+     * @param element 更新后的元素（重试次数已变化）
+     * @param score 放回任务key时的score
+     * @return true：已放回；false：租约已过期并被放回任务key（或已确认）
+     */
+    public boolean requeue(String key, DelayTuple tuple, DelayElement element, long score) {
+        byte[] payload = delayElementCodec.encode(element);
+        // hash存储时保留原消息ID，只更新消息体
+        byte[] member = tuple.isIndirect() ? tuple.getRaw() : payload;
+        Long released = (Long) redisTemplate.execute(RELEASE_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), Arrays.asList(key, leaseKey(key), payloadKey(key)),
+                tuple.getRaw(), score, member, tuple.isIndirect() ? payload : null);
+        return released != null && released > 0;
+    }
+
+    /**
+     * 停放无法解码的元素：以原始字节移入停放key（任务key + .parked），hash存储时消息体保留在消息体key中，不再投递
+     * @param key 任务key
+     * @param tuple 认领的元素
+     * @param leased 是否以租约方式认领（且租约尚未确认），是时先删除租约
+     * @return true：已停放；false：租约已过期并被放回任务key（或已确认）
+     */
+    public boolean park(String key, DelayTuple tuple, boolean leased) {
+        List<String> keys = new ArrayList<String>(3);
+        keys.add(key + DelayPollModeConf.PARKED_KEY_SUFFIX);
+        keys.add(payloadKey(key));
+        if (leased) {
+            keys.add(leaseKey(key));
+        }
+        Long parked = (Long) redisTemplate.execute(PARK_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), keys, tuple.getRaw(), tuple.getScore().longValue(), tuple.isIndirect() ? tuple.getPayload() : null);
+        return parked != null && parked > 0;
+    }
+
+    /**
+     * 获取key中score最小的count个元素（range认领方式）
+     * @param key 任务key
+     * @param count 元素个数
+     * @return 任务元素（未解码），通过 {@link #payloads} 读取消息体、{@link #isConsumable} 过滤后再由 {@link #toTuple} 转换
+     */
+    public Set<RedisZSetCommands.Tuple> range(String key, long count) {
+        byte[] rawKey = redisTemplate.getKeySerializer().serialize(key);
+        Set<RedisZSetCommands.Tuple> items = (Set<RedisZSetCommands.Tuple>) redisTemplate.execute(new RedisCallback<Set<RedisZSetCommands.Tuple>>() {
+            @Override
+            public Set<RedisZSetCommands.Tuple> doInRedis(RedisConnection connection) {
+                return connection.zRangeWithScores(rawKey, 0, count - 1);
+            }
+        });
+        return items == null ? Collections.<RedisZSetCommands.Tuple>emptySet() : items;
+    }
+
+    /**
+     * 一次 HMGET 读取range获取的元素在消息体key中的任务元素
+     * @param key 任务key
+     * @param items range获取的元素
+     * @return 与items顺序一致的任务元素，inline存储的元素为null
+     */
+    public List<byte[]> payloads(String key, Collection<RedisZSetCommands.Tuple> items) {
+        byte[] rawKey = redisTemplate.getKeySerializer().serialize(payloadKey(key));
+        byte[][] fields = new byte[items.size()][];
+        int i = 0;
+        for (RedisZSetCommands.Tuple item : items) {
+            fields[i++] = item.getValue();
+        }
+        List<byte[]> payloads = (List<byte[]>) redisTemplate.execute(new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) {
+                return connection.hMGet(rawKey, fields);
+            }
+        });
+        return payloads == null ? Collections.<byte[]>nCopies(items.size(), null) : payloads;
+    }
+
+    /**
+     * 根据元素头部的delayName判断本地服务是否能够消费该元素，不解码消息体
+     * @param key 任务key
+     * @param payload 任务元素的字节
+     * @return 是否可消费
+     */
+    public boolean isConsumable(String key, byte[] payload) {
+        Collection<String> delayNames = consumableDelays(key);
+        return delayNames == null || delayElementCodec.isConsumable(payload, delayNames);
+    }
+
+    /**
+     * 转换为认领的任务元素，消息体在处理线程中解码
+     * @param item range获取的元素
+     * @param payload 消息体key中的任务元素，inline存储时为null
+     * @return 任务元素
+     */
+    public DelayTuple toTuple(RedisZSetCommands.Tuple item, byte[] payload) {
+        return new DelayTuple(item.getValue(), payload, item.getScore(), delayElementCodec);
+    }
+
+    /**
+     * 从key中删除元素（range认领方式下竞争认领）
+     * @param key 任务key
+     * @param tuple 任务元素
+     * @return 是否删除成功，删除成功表示任务由当前节点处理
+     */
+    public boolean remove(String key, DelayTuple tuple) {
+        return remove(key, key, tuple);
+    }
+
+    /**
+     * 从zSet中删除元素，删除成功时同时删除消息体与消息索引
+     * @param zSetKey 任务key或租约key
+     * @param key 任务key
+     * @param tuple 任务元素
+     * @return 是否删除成功
+     */
+    private boolean remove(String zSetKey, String key, DelayTuple tuple) {
+        Long removed = (Long) redisTemplate.execute(REMOVE_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), Arrays.asList(zSetKey, payloadKey(key), DelayPollModeConf.DELAY_MESSAGE_INDEX), tuple.getRaw());
+        return removed != null && removed > 0;
+    }
+
+    private String leaseKey(String key) {
+        return key + DelayPollModeConf.LEASE_KEY_SUFFIX;
+    }
+
+    private String payloadKey(String key) {
+        return key + DelayPollModeConf.PAYLOAD_KEY_SUFFIX;
+    }
+
+    private Double toScore(Object raw) {
+        if (raw == null || ((byte[]) raw).length == 0) {
+            return null;
+        }
+        return Double.valueOf(new String((byte[]) raw, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 获取key上本地服务可消费的delayName
+     * exclusive模式（及未指定task的customize模式）下key（及其分片key）只属于唯一的delayName，不需要在脚本中过滤
+     * @param key 任务key（或分片key）
+     * @return 需要过滤时返回可消费的delayName，否则返回null
+     */
+    private Collection<String> consumableDelays(String key) {
+        Collection<String> delayNames = DelayParser.keyDelays.get(key);
+        if (delayNames == null || delayNames.isEmpty()) {
+            // 未记录key上的消费者时，仅认领本地服务可消费的元素
+            return DelayParser.delays;
+        }
+        if (delayNames.size() == 1) {
+            String exclusiveKey = DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + delayNames.iterator().next();
+            if (key.equals(exclusiveKey) || key.startsWith(exclusiveKey + ShardUtils.SHARD_SEPARATOR)) {
+                return null;
+            }
+        }
+        return delayNames;
+    }
+
+    /**
+     * 一个key的认领参数
+     */
+    public static class ClaimRequest {
+        /**
+         * 任务key
+         */
+        private final String key;
+        /**
+         * 单次认领的元素上限
+         */
+        private final int limit;
+        /**
+         * 预取时长(毫秒)
+         */
+        private final long lookAhead;
+        /**
+         * 租约时长(毫秒)，0表示直接删除
+         */
+        private final long leaseTimeout;
+
+        private ClaimRequest(String key, int limit, long lookAhead, long leaseTimeout) {
+            this.key = key;
+            this.limit = limit;
+            this.lookAhead = lookAhead;
+            this.leaseTimeout = leaseTimeout;
+        }
+
+        /**
+         * 认领已到期的任务元素，同 {@link DelayClaimer#claim(String, int)}
+         */
+        public static ClaimRequest claim(String key, int limit) {
+            return new ClaimRequest(key, limit, 0, 0);
+        }
+
+        /**
+         * 以租约方式认领 lookAhead 时长内到期的任务元素，同 {@link DelayClaimer#lease}
+         */
+        public static ClaimRequest lease(String key, int limit, long lookAhead, long leaseTimeout) {
+            return new ClaimRequest(key, limit, lookAhead, Math.max(1, leaseTimeout));
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * 认领结果
+     */
+    public static class ClaimResult {
+        /**
+         * 认领时使用的当前时间戳
+         */
+        private final long claimTime;
+        /**
+         * 认领后key中剩余的元素个数
+         */
+        private final long remaining;
+        /**
+         * 认领后key中最早的score，key为空时为null
+         */
+        private final Double nextScore;
+        /**
+         * 认领时跳过的本地服务无法消费的元素个数
+         */
+        private final int skipped;
+        /**
+         * 本次认领的任务元素
+         */
+        private final List<DelayTuple> tuples;
+
+        public ClaimResult(long claimTime, long remaining, Double nextScore, int skipped, List<DelayTuple> tuples) {
+            this.claimTime = claimTime;
+            this.remaining = remaining;
+            this.nextScore = nextScore;
+            this.skipped = skipped;
+            this.tuples = tuples;
+        }
+
+        public long getClaimTime() {
+            return claimTime;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public Double getNextScore() {
+            return nextScore;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public List<DelayTuple> getTuples() {
+            return tuples;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.five.delay.handler;
+
+import cn.hutool.core.util.IdUtil;
+import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.utils.ScriptArgsSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 延迟任务写入器
+ * 通过Lua脚本在一次调用内完成：写入任务元素、更新key的最小延迟时间配置，每次发送（单条或批量）只有一次网络往返
+ * hash存储方式下，zSet中只写入消息ID，任务元素写入消息体key（任务key + .payload），zSet的内存与range传输量只与消息ID长度有关
+ *
+ * @author luopeng
+ * @date 2026-10-18 11:00
+ * @remark
+ */
+@Component
+public class DelayEnqueuer {
+
+    private static final DefaultRedisScript<List> ENQUEUE_SCRIPT = new DefaultRedisScript<List>();
+
+    static {
+        ENQUEUE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/enqueue.lua")));
+        ENQUEUE_SCRIPT.setResultType(List.class);
+    }
+
+    private static final DefaultRedisScript<Long> CANCEL_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        CANCEL_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/cancel.lua")));
+        CANCEL_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final DefaultRedisScript<Long> RESCHEDULE_SCRIPT = new DefaultRedisScript<Long>();
+
+    static {
+        RESCHEDULE_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/reschedule.lua")));
+        RESCHEDULE_SCRIPT.setResultType(Long.class);
+    }
+
+    /**
+     * 脚本访问的key由调用方预先读取（消息索引、去重key中记录的任务key），读取后发生变化（脚本返回-1）时的最大重试次数
+     */
+    private static final int KEY_RETRIES = 3;
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    /**
+     * 任务存储方式：inline（默认）：zSet元素即任务元素；hash：zSet元素为消息ID，任务元素存储在消息体key中
+     * 各节点均可读取两种存储方式的任务，切换存储方式不需要迁移已有任务
+     */
+    private @Value("${delay.handler.storeMode:inline}")
+    String storeMode;
+
+    /**
+     * 轮询调度方式，仅nextDue调度时写入任务才检查队首并发布 delay.head.changed，
+     * fixed调度下没有节点订阅该频道，省去每次写入的队首查询与发布
+     */
+    private @Value("${delay.handler.scheduleMode:fixed}")
+    String scheduleMode;
+
+    /**
+     * 按存储方式生成zSet元素
+     * @param payload 已序列化的任务元素
+     * @return hash存储时为新的消息ID，inline存储时为任务元素本身
+     */
+    public byte[] newMember(byte[] payload) {
+        if (isHashStore()) {
+            return IdUtil.objectId().getBytes(StandardCharsets.UTF_8);
+        }
+        return payload;
+    }
+
+    /**
+     * 是否为hash存储方式（zSet元素为消息ID）
+     * @return true：hash存储
+     */
+    public boolean isHashStore() {
+        return DelayPollModeConf.STORE_MODE_HASH.equals(storeMode);
+    }
+
+    /**
+     * 重新写入任务元素（处理失败重试、执行器饱和时放回），不更新key的最小延迟时间配置
+     * @param key 任务key
+     * @param member zSet元素，hash存储时为原消息ID
+     * @param payload 已序列化的任务元素，与member相同时为inline存储
+     * @param score 任务到期时间戳
+     * @return 新增的元素个数
+     */
+    public Long requeue(String key, byte[] member, byte[] payload, long score) {
+        Batch batch = new Batch(key);
+        batch.add(member, payload, score, Integer.MAX_VALUE);
+        batch.minDelay = -1;
+        return enqueue(Collections.singletonList(batch));
+    }
+
+    /**
+     * 批量写入任务元素，所有key在同一次脚本调用中写入
+     * 指定了去重key的元素按去重策略写入，写入后可通过 {@link Batch#getMember} 获取最终保留的zSet元素
+     * 存在去重元素时，先以一次流水线读取各去重key中记录的任务key，与去重key一同通过KEYS传入脚本
+     * @param batches 按key分组的任务元素
+     * @return 新增的元素个数
+     */
+    public Long enqueue(Collection<Batch> batches) {
+        Set<String> dedupKeys = new LinkedHashSet<String>();
+        for (Batch batch : batches) {
+            for (Integer index : batch.dedupIndexes) {
+                dedupKeys.add((String) batch.scoreMembers.get(index * 5 + 3));
+            }
+        }
+        for (int i = 0; i < KEY_RETRIES; i++) {
+            List<Object> reply = enqueue(batches, dedupKeys);
+            if (reply == null || reply.isEmpty()) {
+                return 0L;
+            }
+            Long added = (Long) reply.get(0);
+            if (added < 0) {
+                // 去重key中记录的任务key在读取后发生变化，重新读取
+                continue;
+            }
+            // 去重元素最终保留的zSet元素，按写入顺序返回
+            int r = 1;
+            for (Batch batch : batches) {
+                for (Integer index : batch.dedupIndexes) {
+                    batch.members.set(index, (byte[]) reply.get(r++));
+                }
+            }
+            return added;
+        }
+        throw new IllegalStateException("去重key中记录的任务key持续变化，重试"+KEY_RETRIES+"次后仍未写入");
+    }
+
+    private List<Object> enqueue(Collection<Batch> batches, Set<String> dedupKeys) {
+        List<String> keys = new ArrayList<String>(batches.size() * 3 + 1 + dedupKeys.size() * 3);
+        keys.add(DelayPollModeConf.DELAY_MESSAGE_INDEX);
+        for (Batch batch : batches) {
+            keys.add(batch.key);
+            keys.add(batch.key + DelayPollModeConf.CONFIG_KEY_SUFFIX);
+            keys.add(batch.key + DelayPollModeConf.PAYLOAD_KEY_SUFFIX);
+        }
+        // 去重key在KEYS中的下标（从1开始，与脚本一致）
+        Map<String, Integer> dedupSlots = new HashMap<String, Integer>();
+        for (String dedupKey : dedupKeys) {
+            keys.add(dedupKey);
+            dedupSlots.put(dedupKey, keys.size());
+        }
+        Set<String> declared = new HashSet<String>(keys);
+        for (String existingKey : existingKeys(dedupKeys)) {
+            for (String key : Arrays.asList(existingKey, existingKey + DelayPollModeConf.PAYLOAD_KEY_SUFFIX)) {
+                if (declared.add(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+
+        List<Object> args = new ArrayList<Object>();
+        args.add(batches.size());
+        args.add(dedupKeys.size());
+        args.add(notifyHead());
+        for (Batch batch : batches) {
+            args.add(batch.size());
+            args.add(batch.minDelay);
+            for (int i = 0; i < batch.scoreMembers.size(); i += 5) {
+                Object dedupKey = batch.scoreMembers.get(i + 3);
+                args.addAll(batch.scoreMembers.subList(i, i + 3));
+                args.add(dedupKey == null ? null : dedupSlots.get(dedupKey));
+                args.add(batch.scoreMembers.get(i + 4));
+            }
+        }
+        return (List<Object>) redisTemplate.execute(ENQUEUE_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                RedisSerializer.byteArray(), keys, args.toArray());
+    }
+
+    /**
+     * 以一次流水线读取各去重key中记录的任务key
+     * @param dedupKeys 去重key
+     * @return 去重key中记录的任务key（去重key不存在时忽略）
+     */
+    private Set<String> existingKeys(Set<String> dedupKeys) {
+        Set<String> existingKeys = new LinkedHashSet<String>();
+        if (dedupKeys.isEmpty()) {
+            return existingKeys;
+        }
+        final byte[] field = "key".getBytes(StandardCharsets.UTF_8);
+        final List<byte[]> rawKeys = new ArrayList<byte[]>(dedupKeys.size());
+        for (String dedupKey : dedupKeys) {
+            rawKeys.add(dedupKey.getBytes(StandardCharsets.UTF_8));
+        }
+        List<Object> values = redisTemplate.executePipelined(new RedisCallback<Object>() {
+            @Override
+            public Object doInRedis(RedisConnection connection) {
+                for (byte[] rawKey : rawKeys) {
+                    connection.hGet(rawKey, field);
+                }
+                return null;
+            }
+        }, RedisSerializer.byteArray());
+        for (Object value : values) {
+            if (value != null) {
+                existingKeys.add(new String((byte[]) value, StandardCharsets.UTF_8));
+            }
+        }
+        return existingKeys;
+    }
+
+    /**
+     * 按消息ID取消任务，先从消息索引读取任务key，再由脚本在一次调用内完成删除（脚本访问的key均通过KEYS传入）
+     * @param id 消息ID
+     * @return true：取消成功；false：消息不存在（已被处理或已取消）
+     */
+    public boolean cancel(String id) {
+        for (int i = 0; i < KEY_RETRIES; i++) {
+            String key = indexed(id)[0];
+            if (key == null) {
+                return false;
+            }
+            List<String> keys = Arrays.asList(DelayPollModeConf.DELAY_MESSAGE_INDEX, key,
+                    key + DelayPollModeConf.LEASE_KEY_SUFFIX, key + DelayPollModeConf.PAYLOAD_KEY_SUFFIX);
+            Long cancelled = (Long) redisTemplate.execute(CANCEL_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                    RedisSerializer.byteArray(), keys, id);
+            if (cancelled == null || cancelled >= 0) {
+                return cancelled != null && cancelled > 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入任务时是否通知队首变更
+     * @return 1：nextDue调度，通知；0：不通知
+     */
+    private int notifyHead() {
+        return DelayPollModeConf.SCHEDULE_MODE_NEXT_DUE.equals(scheduleMode) ? 1 : 0;
+    }
+
+    /**
+     * 按消息ID修改任务的到期时间，先从消息索引读取任务key与去重key，再由脚本在一次调用内完成修改（脚本访问的key均通过KEYS传入）
+     * 去重的消息同步修改去重key的过期时间，到期前重复发送仍按去重策略处理
+     * @param id 消息ID
+     * @param score 新的到期时间戳
+     * @param delay 新的延迟时间(毫秒)
+     * @return true：修改成功；false：消息不存在或已被认领
+     */
+    public boolean reschedule(String id, long score, int delay) {
+        for (int i = 0; i < KEY_RETRIES; i++) {
+            String[] indexed = indexed(id);
+            String key = indexed[0];
+            if (key == null) {
+                return false;
+            }
+            List<String> keys = new ArrayList<String>(Arrays.asList(DelayPollModeConf.DELAY_MESSAGE_INDEX, key,
+                    key + DelayPollModeConf.CONFIG_KEY_SUFFIX));
+            if (indexed[1] != null) {
+                keys.add(indexed[1]);
+            }
+            Long rescheduled = (Long) redisTemplate.execute(RESCHEDULE_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                    RedisSerializer.byteArray(), keys, id, score, delay, notifyHead());
+            if (rescheduled == null || rescheduled >= 0) {
+                return rescheduled != null && rescheduled > 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从消息索引读取消息ID所在的任务key与去重key
+     * @param id 消息ID
+     * @return { 任务key（消息不存在时为null）, 去重key（消息未去重时为null） }
+     */
+    private String[] indexed(String id) {
+        final byte[] rawIndex = DelayPollModeConf.DELAY_MESSAGE_INDEX.getBytes(StandardCharsets.UTF_8);
+        final byte[] rawId = id.getBytes(StandardCharsets.UTF_8);
+        final byte[] rawDedupField = (id + DelayPollModeConf.DEDUP_INDEX_FIELD_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        List<byte[]> values = (List<byte[]>) redisTemplate.execute(new RedisCallback<List<byte[]>>() {
+            @Override
+            public List<byte[]> doInRedis(RedisConnection connection) {
+                return connection.hMGet(rawIndex, rawId, rawDedupField);
+            }
+        });
+        String[] indexed = new String[2];
+        for (int i = 0; values != null && i < values.size() && i < indexed.length; i++) {
+            if (values.get(i) != null) {
+                indexed[i] = new String(values.get(i), StandardCharsets.UTF_8);
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * 同一个key下待写入的任务元素
+     */
+    public static class Batch {
+        /**
+         * 任务key
+         */
+        private final String key;
+        /**
+         * score、member、payload、dedupKey、dedupPolicy 依次排列，inline存储时payload为null，不去重时dedupKey、dedupPolicy为null
+         */
+        private final List<Object> scoreMembers = new ArrayList<Object>();
+        /**
+         * 各元素的zSet元素，去重元素写入后为最终保留的zSet元素
+         */
+        private final List<byte[]> members = new ArrayList<byte[]>();
+        /**
+         * 去重元素的序号
+         */
+        private final List<Integer> dedupIndexes = new ArrayList<Integer>();
+        /**
+         * 本组任务的最小延迟时间(毫秒)
+         */
+        private int minDelay = Integer.MAX_VALUE;
+
+        public Batch(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 添加任务元素
+         * @param member zSet元素
+         * @param payload 已序列化的任务元素，与member相同时为inline存储
+         * @param score 任务到期时间戳
+         * @param delay 任务延迟时间(毫秒)
+         * @return 元素序号
+         */
+        public int add(byte[] member, byte[] payload, long score, int delay) {
+            return add(member, payload, score, delay, null, null);
+        }
+
+        /**
+         * 添加任务元素，按业务key去重
+         * @param member zSet元素
+         * @param payload 已序列化的任务元素，与member相同时为inline存储
+         * @param score 任务到期时间戳
+         * @param delay 任务延迟时间(毫秒)
+         * @param dedupKey 去重key，为null时不去重
+         * @param dedupPolicy 去重策略（DelayPollModeConf.DEDUP_*）
+         * @return 元素序号
+         */
+        public int add(byte[] member, byte[] payload, long score, int delay, String dedupKey, String dedupPolicy) {
+            scoreMembers.add(score);
+            scoreMembers.add(member);
+            scoreMembers.add(member == payload ? null : payload);
+            scoreMembers.add(dedupKey);
+            scoreMembers.add(dedupKey == null ? null : dedupPolicy);
+            if (dedupKey != null) {
+                dedupIndexes.add(members.size());
+            }
+            members.add(member);
+            if (delay < minDelay) {
+                minDelay = delay;
+            }
+            return members.size() - 1;
+        }
+
+        /**
+         * 获取元素的zSet元素，去重元素写入后为最终保留的zSet元素
+         * @param index 元素序号
+         * @return zSet元素
+         */
+        public byte[] getMember(int index) {
+            return members.get(index);
+        }
+
+        public int size() {
+            return members.size();
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.five.delay.handler;
+
+import cn.hutool.core.util.StrUtil;
+import com.five.delay.annotation.DelayListener;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 本地延迟任务处理器调用器
+ * 在解析 {@link DelayListener} 时构建一次，持有本地实例与预编译的 MethodHandle，任务分发时不再访问Redis、不再反射查找方法
+ *
+ * @author luopeng
+ * @date 2026-10-18 10:10
+ * @remark
+ */
+public class DelayHandlerInvoker {
+
+    /**
+     * 统一的调用签名：(Object value) -> Object
+     */
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * 延迟任务名称
+     */
+    private final String delayName;
+    /**
+     * 延迟任务消息存放的key
+     */
+    private final String key;
+    /**
+     * 任务方法所属实例
+     */
+    private final Object bean;
+    /**
+     * 绑定实例后的处理方法
+     */
+    private final MethodHandle handle;
+    /**
+     * 处理并发数，大于0时使用独立的执行线程池
+     */
+    private final int concurrency;
+    /**
+     * 独立执行线程池的队列容量
+     */
+    private final int queueCapacity;
+    /**
+     * 独立执行线程池名称
+     */
+    private final String bulkhead;
+    /**
+     * 处理超时时间(毫秒)，0表示不超时
+     */
+    private final int timeout;
+    /**
+     * 是否批量处理（处理方法参数为List）
+     */
+    private final boolean batch;
+    /**
+     * 批量处理的最大任务数
+     */
+    private final int maxBatchSize;
+    /**
+     * 批量处理的最长等待时间(毫秒)
+     */
+    private final int maxBatchWaitMs;
+    /**
+     * 是否异步处理（处理方法返回CompletionStage）
+     */
+    private final boolean async;
+
+    public DelayHandlerInvoker(String delayName, String key, Method method, Object bean) throws IllegalAccessException {
+        this(delayName, key, method, bean, 0, 0, null, 0);
+    }
+
+    public DelayHandlerInvoker(String delayName, String key, Method method, Object bean,
+                               int concurrency, int queueCapacity, String bulkhead, int timeout) throws IllegalAccessException {
+        this(delayName, key, method, bean, concurrency, queueCapacity, bulkhead, timeout, 1, 0);
+    }
+
+    public DelayHandlerInvoker(String delayName, String key, Method method, Object bean,
+                               int concurrency, int queueCapacity, String bulkhead, int timeout,
+                               int maxBatchSize, int maxBatchWaitMs) throws IllegalAccessException {
+        this.delayName = delayName;
+        this.key = key;
+        this.bean = bean;
+        this.concurrency = concurrency;
+        this.queueCapacity = queueCapacity;
+        this.bulkhead = StrUtil.isEmpty(bulkhead) ? delayName : bulkhead;
+        this.timeout = timeout;
+        this.batch = isBatch(method);
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWaitMs = maxBatchWaitMs;
+        this.async = isAsync(method);
+        // 处理器所在类可能不是public的（如CGLIB代理、内部类），预先开放访问权限
+        method.setAccessible(true);
+        this.handle = MethodHandles.lookup().unreflect(method).bindTo(bean).asType(INVOKE_TYPE);
+    }
+
+    /**
+     * 处理方法参数为List（或Collection）时为批量处理
+     * @param method 处理方法
+     * @return 是否批量处理
+     */
+    public static boolean isBatch(Method method) {
+        Class<?> parameterType = method.getParameterTypes()[0];
+        return parameterType == List.class || parameterType == Collection.class;
+    }
+
+    /**
+     * 处理方法返回CompletionStage（或CompletableFuture）时为异步处理
+     * @param method 处理方法
+     * @return 是否异步处理
+     */
+    public static boolean isAsync(Method method) {
+        return CompletionStage.class.isAssignableFrom(method.getReturnType());
+    }
+
+    /**
+     * 调用处理器
+     * @param value 延迟任务消息体，批量处理时为消息体列表
+     * @return 处理方法返回值，void方法返回null，异步处理时为处理方法返回的CompletionStage
+     * @throws Throwable 处理方法抛出的异常
+     */
+    public Object invoke(Object value) throws Throwable {
+        return handle.invokeExact(value);
+    }
+
+    public String getDelayName() {
+        return delayName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Object getBean() {
+        return bean;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getMaxBatchWaitMs() {
+        return maxBatchWaitMs;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+}
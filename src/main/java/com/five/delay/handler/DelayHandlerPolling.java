@@ -2,16 +2,25 @@ package com.five.delay.handler;
 
 import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.five.delay.conf.DelayPollModeConf;
-import com.five.delay.handler.bean.DelayElement;
+import com.five.delay.handler.bean.DelayTuple;
+import com.five.delay.metrics.DelayMetrics;
+import com.five.delay.utils.HashedTimingWheel;
+import com.five.delay.utils.ShardUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -49,6 +58,68 @@ public class DelayHandlerPolling {
      * 本地轮询任务线程名前缀
      */
     private String threadPrefix = "sync-five.delayHandler-pool";
+    /**
+     * 到期任务认领方式
+     *  script(默认)：Lua脚本在服务端选取、删除并返回到期任务，一次往返
+     *  range：先 range 获取任务，再逐个 ZREM 竞争认领
+     *  lease：Lua脚本将到期任务移入租约key，处理成功后确认，租约(leaseTimeout)到期未确认的任务被放回任务key，保证至少一次投递
+     */
+    private String claimMode = DelayPollModeConf.CLAIM_MODE_SCRIPT;
+    /**
+     * 轮询调度方式
+     *  fixed(默认)：按 rate/emptyRate 固定间隔轮询
+     *  nextDue：按key中最早任务的到期时间轮询（不超过 maxPollInterval），新任务早于队首时通过发布/订阅提前唤醒
+     */
+    private String scheduleMode = DelayPollModeConf.SCHEDULE_MODE_FIXED;
+    /**
+     * nextDue调度模式下，两次轮询的最大间隔时长(毫秒)
+     */
+    private int maxPollInterval = 30000;
+    /**
+     * 轮询引擎
+     *  blocking(默认)：通过redisTemplate认领，轮询线程等待Redis返回，每个正在认领的key占用一个轮询线程与一个连接
+     *  lettuce：通过Lettuce异步API认领（script、lease认领方式），所有key的认领命令在同一连接上流水线发送，轮询线程只负责调度与分发
+     *  classpath中不存在Lettuce时使用blocking
+     */
+    private String pollEngine = DelayPollModeConf.POLL_ENGINE_BLOCKING;
+    /**
+     * 多路复用轮询：合并窗口内到期的各key（分片key）的认领合并为一次脚本调用，Redis命令数随轮询次数而非key数增长
+     * 各key仍按各自的轮询频率（delayRate、emptyRate、nextDue）调度；支持script、lease认领方式（含精确投递模式），所有key需在同一Redis节点
+     */
+    private boolean multiplex = false;
+    /**
+     * 多路复用轮询的合并窗口(毫秒)，key到期后最多等待该时长，与窗口内到期的其他key合并认领
+     */
+    private int multiplexWindow = 10;
+    /**
+     * 多路复用轮询时，一次脚本调用最多认领的key个数
+     */
+    private int multiplexMaxKeys = 100;
+    /**
+     * 精确投递模式：每次轮询以租约方式预取 lookAhead 时长内到期的任务，放入本地时间轮，在任务score到期时投递
+     * 投递精度由 precisionTick 决定，不再受轮询间隔限制
+     */
+    private boolean precision = false;
+    /**
+     * 是否使用lease认领方式
+     */
+    private boolean isLease() {
+        return DelayPollModeConf.CLAIM_MODE_LEASE.equals(claimMode);
+    }
+
+    /**
+     * 精确投递模式下的预取时长(毫秒)，小于等于0时取key轮询频率的2倍
+     */
+    private int lookAhead = 0;
+    /**
+     * 精确投递模式、lease认领方式下的租约时长(毫秒)，节点宕机时，未确认的任务在 max(score, 认领时间) + leaseTimeout 后被放回任务key
+     * lease认领方式下应大于处理器的最长处理时间，否则任务可能被重复投递
+     */
+    private int leaseTimeout = 30000;
+    /**
+     * 精确投递模式下本地时间轮的精度(毫秒)
+     */
+    private int precisionTick = 5;
 
     /**
      * 自定义队列轮询频率(毫秒)
@@ -65,12 +136,28 @@ public class DelayHandlerPolling {
      */
     private ConcurrentHashMap<String, Integer> rangQuantityMap = new ConcurrentHashMap<String, Integer>();
 
-    @Autowired
-    private RedisTemplate redisTemplate;
+    /**
+     * 本地轮询的key（即队列名）与其轮询任务
+     */
+    private ConcurrentHashMap<String, PollWorker> workers = new ConcurrentHashMap<String, PollWorker>();
+
     @Autowired
     private DelayHandlerProcessor delayHandlerProcessor;
     @Autowired
     private DelayParser delayParser;
+    @Autowired
+    private DelayClaimer delayClaimer;
+    @Autowired
+    private RedisMessageListenerContainer delayListenerContainer;
+    @Autowired
+    private DelayNodeRegistry delayNodeRegistry;
+    @Autowired
+    private DelayMetrics delayMetrics;
+    /**
+     * 异步认领器，delay.handler.pollEngine=lettuce 时存在
+     */
+    @Autowired(required = false)
+    private DelayAsyncClaimer delayAsyncClaimer;
 
     /**
      * 任务轮询器线程池，调用处理线程执行具体任务
@@ -78,6 +165,16 @@ public class DelayHandlerPolling {
      */
     private ScheduledExecutorService scheduler;
 
+    /**
+     * 精确投递模式下，保存已预取、尚未到期任务的本地时间轮
+     */
+    private HashedTimingWheel<LeasedTask> timingWheel;
+
+    /**
+     * 多路复用轮询器，multiplex为true时存在
+     */
+    private PollMultiplexer multiplexer;
+
     public DelayHandlerPolling() {
 
     }
@@ -92,85 +189,596 @@ public class DelayHandlerPolling {
                                     .setNamePrefix(threadPrefix + "-")
                                     .setDaemon(true)
                                     .build());
+                    if (precision) {
+                        timingWheel = new HashedTimingWheel<LeasedTask>(precisionTick, 512, threadPrefix + "-wheel",
+                                task -> delayHandlerProcessor.processLeased(task.key, task.tuple, isLease()));
+                        timingWheel.start();
+                    }
+                    if (multiplex) {
+                        if (DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode)) {
+                            logger.warn("多路复用轮询仅支持script、lease认领方式，当前使用range认领方式，多路复用轮询不生效");
+                        } else {
+                            multiplexer = new PollMultiplexer();
+                        }
+                    }
+                    if (DelayPollModeConf.POLL_ENGINE_LETTUCE.equals(pollEngine)) {
+                        if (delayAsyncClaimer == null) {
+                            logger.warn("classpath中不存在Lettuce，轮询引擎使用blocking");
+                        } else if (DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode)) {
+                            logger.warn("lettuce轮询引擎仅支持script、lease认领方式，当前使用range认领方式，轮询引擎使用blocking");
+                        }
+                    }
                 }
             }
         }
 
         int period = getPeriod(key);
-        // getPeriod() 后，可获得每个key配置的最小轮询频率 [rate]
-        delayParser.setTaskRate(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + key, period);
-        scheduler.schedule(new PollWorker(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + key), period, timeUnit);
+        String taskKey = DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + key;
+        // 每个分片由独立的轮询任务认领
+        int shards = DelayParser.keyShards.getOrDefault(taskKey, 1);
+        List<String> shardKeys = ShardUtils.shardKeys(taskKey, shards);
+        // 开启 ownership 时，分片key分配给唯一的存活节点轮询
+        delayNodeRegistry.register(taskKey, shardKeys);
+        for (String shardKey : shardKeys) {
+            // getPeriod() 后，可获得每个key配置的最小轮询频率 [rate]
+            delayParser.setTaskRate(shardKey, period);
+            PollWorker worker = new PollWorker(shardKey, key);
+            workers.put(worker.key, worker);
+            worker.schedule(period);
+        }
+    }
+
+    /**
+     * nextDue调度模式下，订阅新任务早于队首的通知，提前唤醒等待中的轮询线程
+     */
+    @PostConstruct
+    public void subscribeHeadChange() {
+        if (!DelayPollModeConf.SCHEDULE_MODE_NEXT_DUE.equals(scheduleMode)) {
+            return;
+        }
+        if (DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode)) {
+            logger.warn("nextDue调度模式仅支持script认领方式，当前使用range认领方式，nextDue调度模式不生效");
+            return;
+        }
+        delayListenerContainer.addMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message, byte[] pattern) {
+                // 消息格式：score:任务key
+                String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                int index = body.indexOf(':');
+                if (index <= 0) {
+                    return;
+                }
+                PollWorker worker = workers.get(body.substring(index + 1));
+                if (worker != null) {
+                    worker.wake(Long.parseLong(body.substring(0, index)));
+                }
+            }
+        }, new ChannelTopic(DelayPollModeConf.DELAY_HEAD_CHANNEL));
+    }
+
+    /**
+     * 停止轮询；精确投递模式下，停止时间轮并归还尚未投递任务的租约
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (timingWheel == null) {
+            return;
+        }
+        Map<String, List<DelayTuple>> unfired = new HashMap<String, List<DelayTuple>>();
+        for (LeasedTask task : timingWheel.stop()) {
+            unfired.computeIfAbsent(task.key, k -> new ArrayList<DelayTuple>()).add(task.tuple);
+        }
+        for (Map.Entry<String, List<DelayTuple>> entry : unfired.entrySet()) {
+            try {
+                delayClaimer.release(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                // 归还失败时，租约到期后任务被放回任务key
+                logger.error("归还租约异常："+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 是否使用精确投递模式
+     */
+    private boolean isPrecision() {
+        return precision && !DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode);
+    }
+
+    /**
+     * 精确投递模式下的预取时长(毫秒)
+     * @param rate 当前轮询频率
+     */
+    private int getLookAhead(int rate) {
+        return lookAhead > 0 ? lookAhead : rate * 2;
+    }
+
+    /**
+     * 是否使用lettuce轮询引擎异步认领
+     */
+    private boolean isAsyncPoll() {
+        return delayAsyncClaimer != null && DelayPollModeConf.POLL_ENGINE_LETTUCE.equals(pollEngine)
+                && !DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode);
+    }
+
+    /**
+     * 是否使用nextDue调度模式
+     */
+    private boolean isNextDue() {
+        return DelayPollModeConf.SCHEDULE_MODE_NEXT_DUE.equals(scheduleMode)
+                && !DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode);
     }
 
     class PollWorker extends TimerTask implements Runnable {
+        /**
+         * 任务key（或分片key）
+         */
         String key;
+        /**
+         * 任务key（不含前缀与分片序号），用于获取轮询频率配置
+         */
+        String name;
 
-        public PollWorker(String key) {
+        /**
+         * 调度代数，每次（重新）调度加一，过期的调度任务不再执行
+         */
+        private long generation;
+        /**
+         * 是否正在轮询
+         */
+        private boolean running;
+        /**
+         * 下一次轮询的计划执行时间
+         */
+        private long nextRunAt;
+        /**
+         * 下一次轮询的调度任务
+         */
+        private ScheduledFuture<?> future;
+        /**
+         * 轮询执行期间收到的最早新任务score
+         */
+        private long wakeAt = Long.MAX_VALUE;
+
+        public PollWorker(String key, String name) {
             this.key = key;
+            this.name = name;
+        }
+
+        /**
+         * 本次轮询结束，调度下一次轮询
+         * @param delay 下一次轮询的延迟时间(毫秒)
+         */
+        synchronized void schedule(long delay) {
+            running = false;
+            if (wakeAt != Long.MAX_VALUE) {
+                delay = Math.min(delay, wakeAt - System.currentTimeMillis());
+                wakeAt = Long.MAX_VALUE;
+            }
+            submit(delay);
+        }
+
+        /**
+         * 新任务早于当前队首时，提前唤醒轮询
+         * @param score 新任务的到期时间戳
+         */
+        synchronized void wake(long score) {
+            if (running) {
+                // 正在轮询，本次轮询结束后按该score调度
+                wakeAt = Math.min(wakeAt, score);
+                return;
+            }
+            if (isPrecision()) {
+                // 精确投递模式下，提前预取时长认领
+                score -= getLookAhead(getPeriod(name));
+            }
+            if (score < nextRunAt) {
+                future.cancel(false);
+                submit(score - System.currentTimeMillis());
+            }
+        }
+
+        private void submit(long delay) {
+            delay = Math.max(0, delay);
+            final long current = ++generation;
+            nextRunAt = System.currentTimeMillis() + delay;
+            future = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    tick(current);
+                }
+            }, delay, timeUnit);
+        }
+
+        private void tick(long current) {
+            synchronized (this) {
+                if (current != generation || running) {
+                    return;
+                }
+                running = true;
+            }
+            run();
         }
 
         @Override
         public void run() {
-            int rate = getPeriod(key.replace(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX, ""));
+            int rate = getPeriod(name);
+            // 异步认领时，由认领结果的回调调度下一次轮询
+            boolean async = false;
             try {
-                int repeat = 0;
-                int quantity = batchSize - 1;
-                if (!rangQuantityMap.isEmpty() && rangQuantityMap.containsKey(key)) {
-                    quantity = rangQuantityMap.get(key);
+                if (!delayNodeRegistry.isOwner(key)) {
+                    // 该key由其他节点负责轮询
+                    return;
+                }
+                // 根据任务执行器的剩余容量确定本次认领数量，执行器饱和时本次不认领，任务继续保存在Redis中
+                int limit = Math.min(batchSize, delayHandlerProcessor.availableCapacity(key));
+                if (limit <= 0) {
+                    return;
                 }
+                if (DelayPollModeConf.CLAIM_MODE_RANGE.equals(claimMode)) {
+                    rate = rangeClaim(rate, limit);
+                } else if (multiplexer != null) {
+                    // 合并窗口结束时与其他key一起认领
+                    multiplexer.submit(this, rate, limit);
+                    async = true;
+                } else if (isAsyncPoll()) {
+                    async = asyncClaim(rate, limit);
+                } else {
+                    rate = scriptClaim(rate, limit);
+                }
+            } finally {
+                if (!async) {
+                    schedule(rate);
+                }
+            }
+        }
+
+        /**
+         * 通过Lua脚本认领到期任务，一次往返完成选取与删除（lease认领方式、精确投递模式下移入租约key）
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         * @return 下一次轮询频率
+         */
+        private int scriptClaim(int rate, int limit) {
+            try {
+                long start = System.nanoTime();
+                DelayClaimer.ClaimResult result = delayClaimer.claim(Collections.singletonList(claimRequest(rate, limit))).get(0);
+                return handleClaim(rate, limit, start, result);
+            } catch (Exception e) {
+                logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage(), e);
+            }
+            return rate;
+        }
+
+        /**
+         * 通过Lettuce异步认领到期任务，认领结果返回后在轮询线程中处理，并调度下一次轮询
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         * @return 是否已发出认领命令，发出后由认领结果的回调调度下一次轮询
+         */
+        private boolean asyncClaim(int rate, int limit) {
+            long start = System.nanoTime();
+            CompletableFuture<List<DelayClaimer.ClaimResult>> future;
+            try {
+                future = delayAsyncClaimer.claim(Collections.singletonList(claimRequest(rate, limit)));
+            } catch (Exception e) {
+                logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage());
+                return false;
+            }
+            future.whenCompleteAsync((results, e) -> {
+                int next = rate;
                 try {
-                    Set<ZSetOperations.TypedTuple<DelayElement>> zrangeWithScores = redisTemplate.opsForZSet().rangeWithScores(key, 0, quantity);
-                    if(zrangeWithScores !=null && !zrangeWithScores.isEmpty()){
-                        int length = zrangeWithScores.toArray().length;
-                        for (int i = 0; i < length; i++) {
-                            // 获取任务元素信息
-                            ZSetOperations.TypedTuple<DelayElement> tuple = (ZSetOperations.TypedTuple<DelayElement>) (zrangeWithScores.toArray()[i]);
-                            // 先根据超时时间戳判断元素是否超时
-                            if (tuple.getScore() <= System.currentTimeMillis()) {
-                                DelayElement element = tuple.getValue();
-                                // 判断本地服务是否能够消费该消息，由于default、customize两种模式下可能包含本地服务无法消费的消息
-                                if (!DelayParser.delays.contains(element.getDelayName())) {
-                                    repeat++;
-                                } else {
-                                    //处理超时任务
-                                    processDelayTask(key, tuple);
+                    if (e != null) {
+                        logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage());
+                    } else {
+                        next = handleClaim(rate, limit, start, results.get(0));
+                    }
+                } catch (Exception ex) {
+                    logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+ex.getMessage());
+                } finally {
+                    schedule(next);
+                }
+            }, scheduler);
+            return true;
+        }
+
+        /**
+         * 本次认领的参数：lease认领方式、精确投递模式下以租约方式认领
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         * @return 认领参数
+         */
+        DelayClaimer.ClaimRequest claimRequest(int rate, int limit) {
+            if (isPrecision() || isLease()) {
+                return DelayClaimer.ClaimRequest.lease(key, limit, isPrecision() ? getLookAhead(rate) : 0, leaseTimeout);
+            }
+            return DelayClaimer.ClaimRequest.claim(key, limit);
+        }
+
+        /**
+         * 处理脚本认领的结果：投递到期任务（精确投递模式下未到期的任务放入时间轮），并计算下一次轮询频率
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         * @param start 认领开始时间(System.nanoTime)
+         * @param result 认领结果
+         * @return 下一次轮询频率
+         */
+        int handleClaim(int rate, int limit, long start, DelayClaimer.ClaimResult result) {
+            recordClaim(start, result);
+            if (isPrecision() || isLease()) {
+                List<DelayTuple> due = new ArrayList<DelayTuple>(result.getTuples().size());
+                for (DelayTuple tuple : result.getTuples()) {
+                    long score = tuple.getScore().longValue();
+                    if (score <= System.currentTimeMillis()) {
+                        due.add(tuple);
+                    } else {
+                        // 未到期的任务放入时间轮，在score到期时投递
+                        timingWheel.add(score, new LeasedTask(key, tuple));
+                    }
+                }
+                delayHandlerProcessor.processLeased(key, due, isLease());
+            } else {
+                delayHandlerProcessor.process(key, result.getTuples());
+            }
+            if (isNextDue()) {
+                return nextDueDelay(result, rate, limit);
+            }
+            if (result.getTuples().isEmpty() && result.getRemaining() == 0) {
+                // 表示当前队列尾空队列，可以适当降低轮询频率
+                // 空任务轮询频率 [emptyRate]
+                int emptyRate = delayParser.calculationEmptyRate(key);
+                if (emptyRate > 0) {
+                    rate = emptyRate;
+                }
+            }
+            return rate;
+        }
+
+        /**
+         * 记录脚本认领的耗时与结果，skipped为脚本中跳过的本地服务无法消费的任务数
+         * @param start 开始时间(System.nanoTime)
+         * @param result 认领结果
+         */
+        private void recordClaim(long start, DelayClaimer.ClaimResult result) {
+            delayMetrics.recordPoll(key, start);
+            if (result.getTuples().isEmpty()) {
+                delayMetrics.recordEmptyPoll(key);
+            }
+            if (!result.getTuples().isEmpty() || result.getSkipped() > 0) {
+                delayMetrics.recordClaim(key, result.getTuples().size(), result.getSkipped());
+            }
+        }
+
+        /**
+         * nextDue调度模式下，根据key中最早的score计算下一次轮询的延迟时间
+         * @param result 认领结果
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         * @return 下一次轮询的延迟时间(毫秒)
+         */
+        private int nextDueDelay(DelayClaimer.ClaimResult result, int rate, int limit) {
+            if (result.getTuples().size() >= limit) {
+                // 认领已满，可能还有到期任务，立即继续认领
+                return 0;
+            }
+            if (result.getNextScore() == null) {
+                // 空队列，等待新任务通知唤醒
+                return maxPollInterval;
+            }
+            long nextScore = result.getNextScore().longValue();
+            if (isPrecision()) {
+                // 精确投递模式下，队首进入预取时长时认领
+                nextScore -= getLookAhead(rate);
+            }
+            if (nextScore <= result.getClaimTime()) {
+                // 认领时队首已到期却未被认领，说明是本地服务无法消费的任务，按正常轮询频率轮询
+                return rate;
+            }
+            long wait = nextScore - System.currentTimeMillis();
+            return (int) Math.max(0, Math.min(wait, maxPollInterval));
+        }
+
+        /**
+         * 通过 range + ZREM 认领到期任务（原认领方式，用于吞吐量对比）
+         * @param rate 当前轮询频率
+         * @param limit 本次处理数量上限
+         * @return 下一次轮询频率
+         */
+        private int rangeClaim(int rate, int limit) {
+            int repeat = 0;
+            int processed = 0;
+            List<DelayTuple> claimed = new ArrayList<DelayTuple>();
+            int quantity = batchSize - 1;
+            if (!rangQuantityMap.isEmpty() && rangQuantityMap.containsKey(key)) {
+                quantity = rangQuantityMap.get(key);
+            }
+            long start = System.nanoTime();
+            try {
+                Set<RedisZSetCommands.Tuple> zrangeWithScores = delayClaimer.range(key, quantity + 1);
+                if(!zrangeWithScores.isEmpty()){
+                    // hash存储的元素为消息ID，一次 HMGET 读取任务元素
+                    List<byte[]> payloads = delayClaimer.payloads(key, zrangeWithScores);
+                    delayMetrics.recordPoll(key, start);
+                    int i = 0;
+                    for (RedisZSetCommands.Tuple item : zrangeWithScores) {
+                        byte[] payload = payloads.get(i++);
+                        if (processed >= limit) {
+                            break;
+                        }
+                        // 先根据超时时间戳判断元素是否超时
+                        if (item.getScore() <= System.currentTimeMillis()) {
+                            // 判断本地服务是否能够消费该消息，由于default、customize两种模式下可能包含本地服务无法消费的消息
+                            // 只比较元素头部的delayName，不解码消息体
+                            if (!delayClaimer.isConsumable(key, payload == null ? item.getValue() : payload)) {
+                                repeat++;
+                            } else {
+                                //处理超时任务，消息体在处理线程中解码
+                                DelayTuple tuple = delayClaimer.toTuple(item, payload);
+                                if (claimDelayTask(key, tuple)) {
+                                    claimed.add(tuple);
                                 }
+                                processed++;
                             }
                         }
-                    } else {
-                        // 表示当前队列尾空队列，可以适当降低轮询频率
-                        // 空任务轮询频率 [emptyRate]
-                        int emptyRate = delayParser.calculationEmptyRate(key);
+                    }
+                    delayMetrics.recordClaim(key, claimed.size(), repeat);
+                } else {
+                    delayMetrics.recordPoll(key, start);
+                    delayMetrics.recordEmptyPoll(key);
+                    // 表示当前队列尾空队列，可以适当降低轮询频率
+                    // 空任务轮询频率 [emptyRate]
+                    int emptyRate = delayParser.calculationEmptyRate(key);
+                    if (emptyRate > 0) {
                         rate = emptyRate;
                     }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage());
                 }
-                // 更新range quantity值
-                if (repeat > 0) {
-                    rangQuantityMap.put(key, repeat + batchSize - 1);
+            } catch (Exception e) {
+                logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage(), e);
+            }
+            // 已删除（认领成功）的任务，即使本次轮询出现异常也需处理
+            delayHandlerProcessor.process(key, claimed);
+            // 更新range quantity值
+            if (repeat > 0) {
+                rangQuantityMap.put(key, repeat + batchSize - 1);
+            } else {
+                rangQuantityMap.remove(key);
+            }
+            return rate;
+        }
+    }
+
+    /**
+     * 多路复用轮询器
+     * 收集合并窗口内到期的轮询任务，一次脚本调用（lettuce轮询引擎下异步调用）认领所有key，再按key分别处理认领结果、调度各自的下一次轮询
+     */
+    class PollMultiplexer {
+        /**
+         * 等待合并认领的轮询任务，访问时需同步
+         */
+        private List<PendingPoll> pending = new ArrayList<PendingPoll>();
+        /**
+         * 是否已调度合并认领
+         */
+        private boolean flushScheduled;
+
+        /**
+         * 加入等待合并认领的轮询任务，合并窗口结束时认领
+         * @param worker 轮询任务
+         * @param rate 当前轮询频率
+         * @param limit 本次认领数量上限
+         */
+        synchronized void submit(PollWorker worker, int rate, int limit) {
+            pending.add(new PendingPoll(worker, rate, limit));
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, multiplexWindow, timeUnit);
+        }
+
+        private void flush() {
+            List<PendingPoll> polls;
+            synchronized (this) {
+                polls = pending;
+                pending = new ArrayList<PendingPoll>();
+                flushScheduled = false;
+            }
+            int maxKeys = Math.max(1, multiplexMaxKeys);
+            for (int from = 0; from < polls.size(); from += maxKeys) {
+                claim(polls.subList(from, Math.min(polls.size(), from + maxKeys)));
+            }
+        }
+
+        private void claim(List<PendingPoll> polls) {
+            List<DelayClaimer.ClaimRequest> requests = new ArrayList<DelayClaimer.ClaimRequest>(polls.size());
+            for (PendingPoll poll : polls) {
+                requests.add(poll.worker.claimRequest(poll.rate, poll.limit));
+            }
+            long start = System.nanoTime();
+            try {
+                if (isAsyncPoll()) {
+                    delayAsyncClaimer.claim(requests).whenCompleteAsync((results, e) -> complete(polls, start, results, e), scheduler);
                 } else {
-                    rangQuantityMap.remove(key);
+                    complete(polls, start, delayClaimer.claim(requests), null);
+                }
+            } catch (Exception e) {
+                complete(polls, start, null, e);
+            }
+        }
+
+        /**
+         * 按key分别处理认领结果，并调度各自的下一次轮询；认领异常时按当前轮询频率重新调度
+         */
+        private void complete(List<PendingPoll> polls, long start, List<DelayClaimer.ClaimResult> results, Throwable error) {
+            if (error != null) {
+                logger.error(Thread.currentThread().getName()+"多路复用轮询执行异常："+error.getMessage());
+            }
+            for (int i = 0; i < polls.size(); i++) {
+                PendingPoll poll = polls.get(i);
+                int next = poll.rate;
+                try {
+                    if (results != null) {
+                        next = poll.worker.handleClaim(poll.rate, poll.limit, start, results.get(i));
+                    }
+                } catch (Exception e) {
+                    logger.error(Thread.currentThread().getName()+"轮询任务执行异常："+e.getMessage());
+                } finally {
+                    poll.worker.schedule(next);
                 }
-            } finally {
-                scheduler.schedule(this, rate, timeUnit);
             }
         }
     }
 
     /**
-     * 处理超时消息
+     * 等待合并认领的轮询任务
+     */
+    static class PendingPoll {
+        final PollWorker worker;
+        final int rate;
+        final int limit;
+
+        PendingPoll(PollWorker worker, int rate, int limit) {
+            this.worker = worker;
+            this.rate = rate;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * 时间轮中等待投递的租约任务
+     */
+    static class LeasedTask {
+        final String key;
+        final DelayTuple tuple;
+
+        LeasedTask(String key, DelayTuple tuple) {
+            this.key = key;
+            this.tuple = tuple;
+        }
+    }
+
+    /**
+     * 认领超时消息，认领成功的消息在本次轮询结束时一起处理
      * @param key
      * @param tuple
+     * @return 是否由当前节点处理（元素已被其他节点删除时返回false）
      */
-    void processDelayTask(String key, ZSetOperations.TypedTuple<DelayElement> tuple){
-        DelayElement element = tuple.getValue();
-        Long zrem = redisTemplate.opsForZSet().remove(key, element);
-        if(zrem!=null && zrem>0){
+    boolean claimDelayTask(String key, DelayTuple tuple){
+        if(delayClaimer.remove(key, tuple)){
             // 如果元素删除成功，表示任务被当前节点处理
-            delayHandlerProcessor.process(key, tuple);
+            return true;
         }
+        delayMetrics.recordLostRace(key);
+        return false;
     }
 
     public void setInitialDelay(int initialDelay) {
@@ -203,6 +811,50 @@ public class DelayHandlerPolling {
         this.batchSize = batchSize;
     }
 
+    public void setClaimMode(String claimMode) {
+        this.claimMode = claimMode;
+    }
+
+    public void setScheduleMode(String scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    public void setMaxPollInterval(int maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    public void setPollEngine(String pollEngine) {
+        this.pollEngine = pollEngine;
+    }
+
+    public void setMultiplex(boolean multiplex) {
+        this.multiplex = multiplex;
+    }
+
+    public void setMultiplexWindow(int multiplexWindow) {
+        this.multiplexWindow = multiplexWindow;
+    }
+
+    public void setMultiplexMaxKeys(int multiplexMaxKeys) {
+        this.multiplexMaxKeys = multiplexMaxKeys;
+    }
+
+    public void setPrecision(boolean precision) {
+        this.precision = precision;
+    }
+
+    public void setLookAhead(int lookAhead) {
+        this.lookAhead = lookAhead;
+    }
+
+    public void setLeaseTimeout(int leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public void setPrecisionTick(int precisionTick) {
+        this.precisionTick = precisionTick;
+    }
+
     public void setDelayRate(Map<String, Integer> delayRate) {
         this.delayRate = delayRate;
     }
@@ -2,19 +2,29 @@ package com.five.delay.handler;
 
 import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.five.delay.annotation.DelayListener;
+import com.five.delay.codec.DelayElementCodec;
 import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.engine.DelayExecutionEngine;
+import com.five.delay.engine.DelayExecutor;
+import com.five.delay.engine.FixedExecutionEngine;
+import com.five.delay.engine.ForkJoinExecutionEngine;
+import com.five.delay.engine.VirtualExecutionEngine;
 import com.five.delay.handler.bean.DelayElement;
+import com.five.delay.handler.bean.DelayTuple;
+import com.five.delay.metrics.DelayMetrics;
 import com.five.delay.utils.CalendarUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 通过Spring容器获取被 {@link DelayListener} 注解的延时任务处理器，并执行处理器调用
@@ -30,57 +40,836 @@ public class DelayHandlerProcessor {
     /**
      * 延迟任务执行器
      * 根据本地延迟任务数DelayParser.delays，任务执行器存在并发情况。且多个人五同时轮询延迟任务时，压力更大
+     * 使用有界队列，队列剩余容量反馈给轮询器，执行器饱和时轮询器减少或跳过认领，任务继续保存在Redis中
+     */
+    private volatile DelayExecutor executorService = null;
+
+    /**
+     * 任务执行引擎名称：fixed（默认）、forkJoin、virtual（需JDK 21+，低版本JDK时使用fixed）或自定义执行引擎名称
+     */
+    private @Value("${delay.handler.executionEngine:fixed}")
+    String executionEngine;
+
+    /**
+     * 任务执行器核心线程数，小于等于0时等于本地延迟任务数
+     */
+    private @Value("${delay.handler.processCorePoolSize:0}")
+    int processCorePoolSize;
+    /**
+     * 任务执行器最大线程数，小于核心线程数时等于核心线程数
+     */
+    private @Value("${delay.handler.processMaxPoolSize:0}")
+    int processMaxPoolSize;
+    /**
+     * 任务执行器队列容量
+     */
+    private @Value("${delay.handler.processQueueCapacity:1000}")
+    int processQueueCapacity;
+
+    /**
+     * 独立执行线程池（舱壁），key为 {@link DelayListener#bulkhead()}
+     */
+    private final ConcurrentHashMap<String, DelayExecutor> bulkheads = new ConcurrentHashMap<String, DelayExecutor>();
+
+    /**
+     * 批量处理的延迟任务的待处理批次，key为delayName
      */
-    private volatile ExecutorService executorService = null;
+    private final ConcurrentHashMap<String, PendingBatch> pendingBatches = new ConcurrentHashMap<String, PendingBatch>();
 
+    /**
+     * 各执行器上未完成的异步处理数，异步处理不占用执行线程，但计入执行器的可接收任务数
+     */
+    private final ConcurrentHashMap<DelayExecutor, AtomicInteger> asyncInFlight = new ConcurrentHashMap<DelayExecutor, AtomicInteger>();
+
+    /**
+     * 各执行器上待处理批次中缓存的消息数，已认领但尚未提交，计入执行器的可接收任务数
+     */
+    private final ConcurrentHashMap<DelayExecutor, AtomicInteger> batchBuffered = new ConcurrentHashMap<DelayExecutor, AtomicInteger>();
+
+    /**
+     * 处理超时检测线程，同时用于批次的等待提交
+     */
+    private volatile ScheduledExecutorService timeoutScheduler = null;
+
+    @Autowired
+    private DelayClaimer delayClaimer;
+    @Autowired
+    private DelayEnqueuer delayEnqueuer;
+    @Autowired
+    private DelayElementCodec delayElementCodec;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private DelayMetrics delayMetrics;
+    /**
+     * 自定义执行引擎
+     */
+    @Autowired(required = false)
+    private List<DelayExecutionEngine> customEngines = Collections.emptyList();
 
-    public void process(String key, ZSetOperations.TypedTuple<DelayElement>  tuple){
+    private DelayExecutionEngine engine;
 
-        if (executorService == null) {
-            synchronized (this) {
-                if (executorService == null) {
-                    int delaySize = DelayParser.delays.size();
-                    executorService = new ThreadPoolExecutor(delaySize, delaySize,
-                            0L, TimeUnit.MILLISECONDS,
-                            new LinkedBlockingQueue<Runnable>(),
-                            new ThreadFactoryBuilder().setNamePrefix("delay-process-").build());
+    @PostConstruct
+    public void init() throws Exception {
+        List<DelayExecutionEngine> engines = new ArrayList<DelayExecutionEngine>(customEngines);
+        engines.add(new FixedExecutionEngine());
+        engines.add(new ForkJoinExecutionEngine());
+        engines.add(new VirtualExecutionEngine());
+        for (DelayExecutionEngine candidate : engines) {
+            if (candidate.getName().equals(executionEngine)) {
+                engine = candidate;
+                break;
+            }
+        }
+        if (engine == null) {
+            throw new Exception("不存在名称为[" + executionEngine + "]的任务执行引擎！");
+        }
+        if (engine instanceof VirtualExecutionEngine && !VirtualExecutionEngine.isSupported()) {
+            logger.warn("当前JDK不支持虚拟线程（需JDK 21+），任务执行引擎使用fixed");
+            engine = new FixedExecutionEngine();
+        }
+    }
+
+    public void process(String key, DelayTuple tuple){
+        process(key, Collections.singletonList(tuple));
+    }
+
+    /**
+     * 处理一次认领的任务，批量处理的延迟任务合并为一次调用
+     * @param key 任务key
+     * @param tuples 认领的元素（已从任务key中删除）
+     */
+    public void process(String key, List<DelayTuple> tuples){
+        processClaimed(key, tuples, false, false);
+    }
+
+    private void execute(String key, DelayTuple tuple){
+        try {
+            getExecutorService(tuple.getDelayName()).execute(new Runnable() {
+                @Override
+                public void run() {
+                    DelayElement element = decode(key, tuple, false);
+                    if (element == null) {
+                        return;
+                    }
+                    dispatch(element, tuple.getScore(), success -> {
+                        try {
+                            if (!success) {
+                                errorProcess(key, tuple, element);
+                            }
+                        } catch (Exception e) {
+                            logger.error("重试任务写入异常："+e.getMessage());
+                        }
+                    });
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            // 执行器已饱和，任务按原score放回任务key，由下一次认领重新投递
+            logger.warn("任务执行器已饱和，延迟任务["+tuple.getDelayName()+"]放回"+key);
+            delayEnqueuer.requeue(key, tuple.getRaw(), tuple.getPayload(), tuple.getScore().longValue());
+        }
+    }
+
+    /**
+     * 处理以租约方式认领的任务
+     *  ackAfter为false（最多一次）：先确认租约，租约仍由本节点持有时才调用处理器；租约已过期时，任务已被放回任务key，由下一次认领重新投递
+     *  ackAfter为true（至少一次）：先调用处理器，处理成功后确认租约；处理失败时原子地删除租约并放回重试任务；确认前节点宕机时，租约到期后任务被放回任务key
+     * @param key 任务key
+     * @param tuple 以租约方式认领的元素
+     * @param ackAfter 是否在处理成功后确认租约
+     */
+    public void processLeased(String key, DelayTuple tuple, boolean ackAfter){
+        processLeased(key, Collections.singletonList(tuple), ackAfter);
+    }
+
+    /**
+     * 处理一次以租约方式认领的任务，批量处理的延迟任务合并为一次调用，确认方式同 {@link #processLeased(String, DelayTuple, boolean)}
+     * @param key 任务key
+     * @param tuples 以租约方式认领的元素
+     * @param ackAfter 是否在处理成功后确认租约
+     */
+    public void processLeased(String key, List<DelayTuple> tuples, boolean ackAfter){
+        processClaimed(key, tuples, true, ackAfter);
+    }
+
+    private void processClaimed(String key, List<DelayTuple> tuples, boolean leased, boolean ackAfter){
+        Set<DelayHandlerInvoker> batched = null;
+        for (DelayTuple tuple : tuples) {
+            if (readDelayName(key, tuple, leased) == null) {
+                continue;
+            }
+            DelayHandlerInvoker invoker = batchInvoker(tuple);
+            if (invoker == null) {
+                if (leased) {
+                    executeLeased(key, tuple, ackAfter);
+                } else {
+                    execute(key, tuple);
+                }
+                continue;
+            }
+            collect(invoker, new BatchItem(key, tuple, leased, ackAfter));
+            if (batched == null) {
+                batched = new HashSet<DelayHandlerInvoker>();
+            }
+            batched.add(invoker);
+        }
+        if (batched != null) {
+            for (DelayHandlerInvoker invoker : batched) {
+                scheduleFlush(invoker);
+            }
+        }
+    }
+
+    private void executeLeased(String key, DelayTuple tuple, boolean ackAfter){
+        try {
+            if (ackAfter) {
+                executeThenAck(key, tuple);
+            } else {
+                ackThenExecute(key, tuple);
             }
+        } catch (RejectedExecutionException e) {
+            // 执行器已饱和，归还租约，由下一次认领重新投递
+            logger.warn("任务执行器已饱和，延迟任务["+tuple.getDelayName()+"]归还租约");
+            delayClaimer.release(key, Collections.singletonList(tuple));
         }
+    }
 
-        this.executorService.execute(new Runnable() {
+    private void ackThenExecute(String key, DelayTuple tuple){
+        getExecutorService(tuple.getDelayName()).execute(new Runnable() {
             @Override
             public void run() {
-                DelayElement element = tuple.getValue();
+                DelayElement element = decode(key, tuple, true);
+                if (element == null) {
+                    return;
+                }
                 try {
-                    MethodDelayHandlerEndpoint delayHandlerEndpoint = (MethodDelayHandlerEndpoint) redisTemplate.opsForHash().get(DelayPollModeConf.DELAY_METADATA_HANDLER_MAP, element.getDelayName());
-                    Method method = delayHandlerEndpoint.getObj().getClass().getMethod(delayHandlerEndpoint.getMethodName(), delayHandlerEndpoint.getParameterTypes());
+                    if (!delayClaimer.ack(key, tuple)) {
+                        delayMetrics.recordLostRace(key);
+                        return;
+                    }
+                } catch (Exception e) {
+                    // 确认失败时不处理，租约到期后任务被放回任务key
+                    logger.error("租约确认异常："+e.getMessage());
+                    return;
+                }
+                dispatch(element, tuple.getScore(), success -> {
                     try {
-                        method.invoke(delayHandlerEndpoint.getObj(), element.getValue());
-                    } catch (IllegalAccessException e) {
-                        logger.error("处理器调用异常："+e.getMessage());
-                        errorProcess(element);
-                    } catch (InvocationTargetException e) {
-                        logger.error("处理器调用异常："+e.getMessage());
-                        errorProcess(element);
+                        if (!success) {
+                            errorProcess(key, tuple, element);
+                        }
+                    } catch (Exception e) {
+                        logger.error("重试任务写入异常："+e.getMessage());
                     }
-                } catch (NoSuchMethodException e) {
-                    logger.error("处理器调用异常："+e.getMessage());
-                    errorProcess(element);
+                });
+            }
+        });
+    }
+
+    private void executeThenAck(String key, DelayTuple tuple){
+        getExecutorService(tuple.getDelayName()).execute(new Runnable() {
+            @Override
+            public void run() {
+                DelayElement element = decode(key, tuple, true);
+                if (element == null) {
+                    return;
+                }
+                dispatch(element, tuple.getScore(), success -> {
+                    try {
+                        if (success) {
+                            if (!delayClaimer.ack(key, tuple)) {
+                                delayMetrics.recordLostRace(key);
+                                logger.warn("延迟任务["+element.getDelayName()+"]处理完成时租约已过期，任务可能被重复投递，请调大 leaseTimeout");
+                            }
+                        } else {
+                            errorProcessLeased(key, tuple, element);
+                        }
+                    } catch (Exception e) {
+                        // 确认失败时，租约到期后任务被放回任务key
+                        logger.error("租约确认异常："+e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 读取元素的delayName（只读取头部），无法读取时停放元素
+     * @param key 任务key
+     * @param tuple 认领的元素
+     * @param leased 是否以租约方式认领
+     * @return delayName，无法读取时为null
+     */
+    private String readDelayName(String key, DelayTuple tuple, boolean leased) {
+        try {
+            String delayName = tuple.getDelayName();
+            if (delayName == null) {
+                undecodable(key, tuple, leased, null, null);
+            }
+            return delayName;
+        } catch (Exception e) {
+            undecodable(key, tuple, leased, null, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在处理线程中解码元素，无法解码（消息体损坏、未注册的类型、切换编解码器时未开启双读等）时停放元素
+     * 元素已从任务key中删除（租约方式认领时仍在租约key中），不停放将丢失
+     * @param key 任务key
+     * @param tuple 认领的元素
+     * @param leased 是否以租约方式认领，且租约尚未确认
+     * @return 任务元素，无法解码时为null
+     */
+    private DelayElement decode(String key, DelayTuple tuple, boolean leased) {
+        try {
+            return tuple.getValue();
+        } catch (Exception e) {
+            undecodable(key, tuple, leased, tuple.getDelayName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 无法解码的元素：记录key、delayName与原始字节，并移入停放key（任务key + .parked），不再投递
+     */
+    private void undecodable(String key, DelayTuple tuple, boolean leased, String delayName, Exception e) {
+        boolean parked = false;
+        try {
+            parked = delayClaimer.park(key, tuple, leased);
+        } catch (Exception parkError) {
+            logger.error("无法解码的任务元素停放异常："+parkError.getMessage(), parkError);
+        }
+        logger.error("任务元素无法解码：key["+key+"]延迟任务["+delayName+"]元素(Base64)["+Base64.getEncoder().encodeToString(tuple.getRaw())+"]"
+                + (tuple.isIndirect() ? "消息体(Base64)["+Base64.getEncoder().encodeToString(tuple.getPayload())+"]" : "")
+                + (parked ? "，已移入"+key+DelayPollModeConf.PARKED_KEY_SUFFIX : "") + (e == null ? "：无法读取delayName" : ""), e);
+    }
+
+    /**
+     * 批量处理的延迟任务调用器
+     * @param tuple 认领的元素
+     * @return 调用器，非批量处理时返回null
+     */
+    private DelayHandlerInvoker batchInvoker(DelayTuple tuple) {
+        DelayHandlerInvoker invoker = DelayParser.invokers.get(tuple.getDelayName());
+        return invoker != null && invoker.isBatch() ? invoker : null;
+    }
+
+    /**
+     * 加入延迟任务的待处理批次，达到maxBatchSize时提交处理
+     */
+    private void collect(DelayHandlerInvoker invoker, BatchItem item) {
+        PendingBatch pending = pendingBatches.computeIfAbsent(invoker.getDelayName(), name -> new PendingBatch());
+        AtomicInteger buffered = batchBuffered(invoker.getDelayName());
+        List<BatchItem> full = null;
+        synchronized (pending) {
+            pending.items.add(item);
+            buffered.incrementAndGet();
+            if (pending.items.size() >= invoker.getMaxBatchSize()) {
+                full = pending.take();
+                buffered.addAndGet(-full.size());
+            }
+        }
+        if (full != null) {
+            submitBatch(invoker, full);
+        }
+    }
+
+    /**
+     * 一次认领的任务加入批次后：maxBatchWaitMs为0时立即提交待处理批次，否则在maxBatchWaitMs后提交
+     */
+    private void scheduleFlush(DelayHandlerInvoker invoker) {
+        PendingBatch pending = pendingBatches.get(invoker.getDelayName());
+        if (pending == null) {
+            return;
+        }
+        if (invoker.getMaxBatchWaitMs() <= 0) {
+            flush(invoker, pending);
+            return;
+        }
+        synchronized (pending) {
+            if (pending.items.isEmpty() || pending.flush != null) {
+                return;
+            }
+            pending.flush = getTimeoutScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush(invoker, pending);
                 }
+            }, invoker.getMaxBatchWaitMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(DelayHandlerInvoker invoker, PendingBatch pending) {
+        List<BatchItem> items;
+        synchronized (pending) {
+            items = pending.take();
+            batchBuffered(invoker.getDelayName()).addAndGet(-items.size());
+        }
+        if (!items.isEmpty()) {
+            submitBatch(invoker, items);
+        }
+    }
+
+    /**
+     * 服务停止时提交所有待处理批次
+     */
+    @PreDestroy
+    public void flushBatches() {
+        for (Map.Entry<String, PendingBatch> pending : pendingBatches.entrySet()) {
+            DelayHandlerInvoker invoker = DelayParser.invokers.get(pending.getKey());
+            if (invoker != null) {
+                flush(invoker, pending.getValue());
             }
+        }
+    }
+
+    private AtomicInteger batchBuffered(String delayName) {
+        return batchBuffered.computeIfAbsent(getExecutorService(delayName), executor -> new AtomicInteger());
+    }
 
-            private void errorProcess(DelayElement element){
-                // 调用异常，可配置消费失败处理策略【直接抛弃、重试次数】
-                if (element.getRetried() < element.getRetry() || -1 == element.getRetry()) {
-                    element.setRetried(element.getRetried() + 1);
-                    redisTemplate.opsForZSet().add(key, element, CalendarUtils.getCurrentTimeInMillis(element.getRetryDelay(), Calendar.MILLISECOND));
+    private void submitBatch(DelayHandlerInvoker invoker, List<BatchItem> items) {
+        try {
+            getExecutorService(invoker.getDelayName()).execute(new Runnable() {
+                @Override
+                public void run() {
+                    executeBatch(invoker, items);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 执行器已饱和：直接认领的任务按原score放回任务key，租约方式认领的任务归还租约，由下一次认领重新投递
+            logger.warn("任务执行器已饱和，延迟任务["+invoker.getDelayName()+"]的"+items.size()+"条任务放回");
+            for (BatchItem item : items) {
+                if (item.leased) {
+                    delayClaimer.release(item.key, Collections.singletonList(item.tuple));
+                } else {
+                    delayEnqueuer.requeue(item.key, item.tuple.getRaw(), item.tuple.getPayload(), item.tuple.getScore().longValue());
                 }
             }
+        }
+    }
 
+    /**
+     * 批量调用处理器，处理失败的消息按各自的失败策略重试
+     */
+    private void executeBatch(DelayHandlerInvoker invoker, List<BatchItem> items) {
+        List<BatchItem> accepted = new ArrayList<BatchItem>(items.size());
+        for (BatchItem item : items) {
+            if (decode(item.key, item.tuple, item.leased) == null) {
+                continue;
+            }
+            if (item.leased && !item.ackAfter) {
+                try {
+                    if (!delayClaimer.ack(item.key, item.tuple)) {
+                        delayMetrics.recordLostRace(item.key);
+                        continue;
+                    }
+                } catch (Exception e) {
+                    // 确认失败时不处理，租约到期后任务被放回任务key
+                    logger.error("租约确认异常："+e.getMessage());
+                    continue;
+                }
+            }
+            accepted.add(item);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        List<Object> values = new ArrayList<Object>(accepted.size());
+        for (BatchItem item : accepted) {
+            values.add(item.tuple.getValue().getValue());
+            delayMetrics.recordLateness(invoker.getDelayName(), item.tuple.getScore());
+        }
+        invoke(invoker, values, values.size(), failed -> completeBatch(accepted, failed));
+    }
+
+    /**
+     * 批量处理完成：处理成功的消息确认租约，处理失败的消息按各自的失败策略重试
+     */
+    private void completeBatch(List<BatchItem> accepted, Set<Integer> failed) {
+        for (int i = 0; i < accepted.size(); i++) {
+            BatchItem item = accepted.get(i);
+            DelayElement element = item.tuple.getValue();
+            try {
+                if (item.leased && item.ackAfter) {
+                    if (!failed.contains(i)) {
+                        if (!delayClaimer.ack(item.key, item.tuple)) {
+                            delayMetrics.recordLostRace(item.key);
+                            logger.warn("延迟任务["+element.getDelayName()+"]处理完成时租约已过期，任务可能被重复投递，请调大 leaseTimeout");
+                        }
+                    } else {
+                        errorProcessLeased(item.key, item.tuple, element);
+                    }
+                } else if (failed.contains(i)) {
+                    errorProcess(item.key, item.tuple, element);
+                }
+            } catch (Exception e) {
+                logger.error("批量处理结果确认异常："+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * key上的任务当前可接收的任务数：key上各延迟任务所用执行器（空闲线程数 + 队列剩余容量 - 未完成的异步处理数 - 待处理批次中缓存的消息数）的最小值
+     * 任一执行器饱和时不再认领该key，避免认领后被拒绝、反复放回Redis
+     * @param key 任务key
+     * @return 可接收的任务数
+     */
+    public int availableCapacity(String key) {
+        Set<String> delayNames = DelayParser.keyDelays.get(key);
+        if (delayNames == null || delayNames.isEmpty()) {
+            return availableCapacity(getExecutorService());
+        }
+        int capacity = Integer.MAX_VALUE;
+        for (String delayName : delayNames) {
+            capacity = Math.min(capacity, availableCapacity(getExecutorService(delayName)));
+        }
+        return capacity;
+    }
+
+    /**
+     * 执行器可接收的任务数，扣除执行器上未完成的异步处理数与待处理批次中缓存的消息数
+     */
+    private int availableCapacity(DelayExecutor executor) {
+        int capacity = executor.availableCapacity();
+        AtomicInteger inFlight = asyncInFlight.get(executor);
+        if (inFlight != null) {
+            capacity -= inFlight.get();
+        }
+        AtomicInteger buffered = batchBuffered.get(executor);
+        if (buffered != null) {
+            capacity -= buffered.get();
+        }
+        return Math.max(0, capacity);
+    }
+
+    /**
+     * 获取延迟任务的执行器：配置了concurrency的延迟任务使用独立执行线程池，否则使用公共执行器，均由执行引擎创建
+     * @param delayName 延迟任务名称
+     * @return 执行器
+     */
+    private DelayExecutor getExecutorService(String delayName) {
+        DelayHandlerInvoker invoker = DelayParser.invokers.get(delayName);
+        if (invoker == null || invoker.getConcurrency() <= 0) {
+            return getExecutorService();
+        }
+        return bulkheads.computeIfAbsent(invoker.getBulkhead(), bulkhead -> {
+            // 同一线程池中的延迟任务，线程数与队列容量取最大值
+            int concurrency = 0;
+            int queueCapacity = 0;
+            for (DelayHandlerInvoker member : DelayParser.invokers.values()) {
+                if (member.getConcurrency() > 0 && bulkhead.equals(member.getBulkhead())) {
+                    concurrency = Math.max(concurrency, member.getConcurrency());
+                    queueCapacity = Math.max(queueCapacity, member.getQueueCapacity());
+                }
+            }
+            if (queueCapacity <= 0) {
+                queueCapacity = processQueueCapacity;
+            }
+            DelayExecutor executor = engine.create("delay-process-" + bulkhead + "-", concurrency, concurrency, queueCapacity);
+            delayMetrics.bindExecutor(bulkhead, executor);
+            return executor;
         });
     }
 
+    private DelayExecutor getExecutorService() {
+        if (executorService == null) {
+            synchronized (this) {
+                if (executorService == null) {
+                    int corePoolSize = processCorePoolSize > 0 ? processCorePoolSize : Math.max(1, DelayParser.delays.size());
+                    int maxPoolSize = Math.max(corePoolSize, processMaxPoolSize);
+                    executorService = engine.create("delay-process-", corePoolSize, maxPoolSize, processQueueCapacity);
+                    delayMetrics.bindExecutor("default", executorService);
+                }
+            }
+        }
+        return executorService;
+    }
+
+    /**
+     * 调用处理器
+     * @param element 任务元素
+     * @param score 任务到期时间戳，用于记录投递延迟
+     * @param completion 处理结果（是否处理成功）的后续操作，同 {@link #invoke}
+     */
+    private void dispatch(DelayElement element, Double score, Consumer<Boolean> completion) {
+        DelayHandlerInvoker invoker = DelayParser.invokers.get(element.getDelayName());
+        if (invoker == null) {
+            logger.error("处理器调用异常：本地不存在延迟任务["+element.getDelayName()+"]的处理器");
+            completion.accept(false);
+            return;
+        }
+        delayMetrics.recordLateness(element.getDelayName(), score);
+        invoke(invoker, element.getValue(), 1, failed -> completion.accept(failed.isEmpty()));
+    }
+
+    /**
+     * 调用处理器
+     * 同步处理时在当前线程中处理；异步处理时处理方法返回后即释放当前线程，返回的CompletionStage完成后得到结果
+     * 结果的后续操作（确认租约、放回重试任务）在得到结果的线程中执行，处理超时时在超时检测线程中执行
+     * @param invoker 调用器
+     * @param argument 消息体，批量处理时为消息体列表
+     * @param size 消息数
+     * @param completion 处理结果的后续操作，参数为处理失败的消息下标，全部处理成功时为空
+     */
+    private void invoke(DelayHandlerInvoker invoker, Object argument, int size, Consumer<Set<Integer>> completion) {
+        if (invoker.isAsync()) {
+            invokeAsync(invoker, argument, size).thenAccept(completion);
+            return;
+        }
+        // 后续操作在调用处理方法前注册，超时时立即执行，不等待处理方法返回
+        CompletableFuture<Set<Integer>> outcome = new CompletableFuture<Set<Integer>>();
+        outcome.thenAccept(completion);
+        invokeSync(invoker, argument, size, outcome);
+    }
+
+    /**
+     * 同步调用处理器
+     * 超时后中断处理线程，并立即以全部失败完成结果（在超时检测线程中按失败策略重试或丢弃），不等待处理方法返回
+     * 超时后处理方法才返回（不响应中断，如阻塞IO）时，处理结果被忽略：不再重试、不重复处理
+     */
+    private void invokeSync(DelayHandlerInvoker invoker, Object argument, int size, CompletableFuture<Set<Integer>> outcome) {
+        String delayName = invoker.getDelayName();
+        long start = System.nanoTime();
+        InvokeTimeout invokeTimeout = null;
+        if (invoker.getTimeout() > 0) {
+            invokeTimeout = new InvokeTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    if (outcome.complete(allIndexes(size))) {
+                        logger.error("处理器调用超时：延迟任务["+delayName+"]处理时间超过"+invoker.getTimeout()+"毫秒");
+                        delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_TIMEOUT);
+                    }
+                }
+            });
+            invokeTimeout.future = getTimeoutScheduler().schedule(invokeTimeout, invoker.getTimeout(), TimeUnit.MILLISECONDS);
+        }
+        Set<Integer> failed;
+        String outcomeName;
+        try {
+            invoker.invoke(argument);
+            failed = Collections.emptySet();
+            outcomeName = DelayMetrics.OUTCOME_SUCCESS;
+        } catch (Throwable e) {
+            failed = failedIndexes(invoker, e, size);
+            outcomeName = DelayMetrics.OUTCOME_FAILURE;
+        }
+        if (invokeTimeout != null && invokeTimeout.finish()) {
+            // 超时时已按失败处理，处理结果被忽略
+            logger.warn("延迟任务["+delayName+"]处理在超时后结束，处理结果被忽略");
+            return;
+        }
+        delayMetrics.recordHandler(delayName, start, outcomeName);
+        outcome.complete(failed);
+    }
+
+    /**
+     * 异步调用处理器：处理方法返回的CompletionStage正常完成时处理成功，异常完成时处理失败
+     * 超时后不再等待（尝试取消CompletionStage），按处理失败重试
+     */
+    private CompletableFuture<Set<Integer>> invokeAsync(DelayHandlerInvoker invoker, Object argument, int size) {
+        String delayName = invoker.getDelayName();
+        long start = System.nanoTime();
+        CompletionStage<?> stage;
+        try {
+            stage = (CompletionStage<?>) invoker.invoke(argument);
+        } catch (Throwable e) {
+            delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_FAILURE);
+            return CompletableFuture.completedFuture(failedIndexes(invoker, e, size));
+        }
+        if (stage == null) {
+            delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_SUCCESS);
+            return CompletableFuture.completedFuture(Collections.<Integer>emptySet());
+        }
+        CompletableFuture<Set<Integer>> outcome = new CompletableFuture<Set<Integer>>();
+        AtomicInteger inFlight = asyncInFlight.computeIfAbsent(getExecutorService(delayName), executor -> new AtomicInteger());
+        inFlight.incrementAndGet();
+        outcome.whenComplete((failed, e) -> inFlight.decrementAndGet());
+        if (invoker.getTimeout() > 0) {
+            ScheduledFuture<?> timeout = getTimeoutScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (outcome.complete(allIndexes(size))) {
+                        logger.error("处理器调用超时：延迟任务["+delayName+"]处理时间超过"+invoker.getTimeout()+"毫秒");
+                        delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_TIMEOUT);
+                        try {
+                            stage.toCompletableFuture().cancel(true);
+                        } catch (UnsupportedOperationException e) {
+                            // CompletionStage不支持转换时无法取消，结果被忽略
+                        }
+                    }
+                }
+            }, invoker.getTimeout(), TimeUnit.MILLISECONDS);
+            outcome.whenComplete((failed, e) -> timeout.cancel(false));
+        }
+        stage.whenComplete((value, e) -> {
+            if (outcome.isDone()) {
+                return;
+            }
+            if (e == null) {
+                if (outcome.complete(Collections.<Integer>emptySet())) {
+                    delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_SUCCESS);
+                }
+            } else {
+                Set<Integer> failed = failedIndexes(invoker, e, size);
+                if (outcome.complete(failed)) {
+                    delayMetrics.recordHandler(delayName, start, DelayMetrics.OUTCOME_FAILURE);
+                }
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * 处理失败的消息下标：批量处理抛出 {@link DelayBatchException} 时为其中的下标，否则为全部消息
+     */
+    private static Set<Integer> failedIndexes(DelayHandlerInvoker invoker, Throwable e, int size) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (invoker.isBatch() && e instanceof DelayBatchException) {
+            // 批量处理部分失败，只重试失败的消息
+            Set<Integer> failed = new HashSet<Integer>();
+            for (Integer index : ((DelayBatchException) e).getFailedIndexes()) {
+                if (index != null && index >= 0 && index < size) {
+                    failed.add(index);
+                }
+            }
+            logger.error("批量处理部分失败：延迟任务["+invoker.getDelayName()+"]"+failed.size()+"/"+size+"条处理失败");
+            return failed;
+        }
+        logger.error("处理器调用异常："+e.getMessage());
+        return allIndexes(size);
+    }
+
+    private static Set<Integer> allIndexes(int size) {
+        Set<Integer> indexes = new HashSet<Integer>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private ScheduledExecutorService getTimeoutScheduler() {
+        if (timeoutScheduler == null) {
+            synchronized (this) {
+                if (timeoutScheduler == null) {
+                    timeoutScheduler = Executors.newSingleThreadScheduledExecutor(
+                            new ThreadFactoryBuilder().setNamePrefix("delay-timeout-").setDaemon(true).build());
+                }
+            }
+        }
+        return timeoutScheduler;
+    }
+
+    /**
+     * 处理超时检测：超时后中断处理线程，并执行超时处理
+     * 处理结束与超时中断互斥，保证中断标志不会遗留到处理线程的下一个任务
+     */
+    private static class InvokeTimeout implements Runnable {
+        private final Thread thread = Thread.currentThread();
+        /**
+         * 超时处理，在超时检测线程中执行
+         */
+        private final Runnable onTimeout;
+        private ScheduledFuture<?> future;
+        private boolean done;
+        private boolean timedOut;
+
+        InvokeTimeout(Runnable onTimeout) {
+            this.onTimeout = onTimeout;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                timedOut = true;
+                thread.interrupt();
+            }
+            onTimeout.run();
+        }
+
+        /**
+         * 处理结束
+         * @return 是否已超时
+         */
+        synchronized boolean finish() {
+            done = true;
+            future.cancel(false);
+            if (timedOut) {
+                // 清除超时中断标志
+                Thread.interrupted();
+            }
+            return timedOut;
+        }
+    }
+
+    /**
+     * 租约方式（处理成功后确认）认领的任务处理失败：原子地删除租约并放回重试任务，超过重试次数时确认租约（丢弃）
+     */
+    private void errorProcessLeased(String key, DelayTuple tuple, DelayElement element){
+        if (element.getRetried() < element.getRetry() || -1 == element.getRetry()) {
+            element.setRetried(element.getRetried() + 1);
+            delayMetrics.recordRetry(element.getDelayName());
+            delayClaimer.requeue(key, tuple, element, CalendarUtils.getCurrentTimeInMillis(element.getRetryDelay(), Calendar.MILLISECOND));
+        } else {
+            delayClaimer.ack(key, tuple);
+        }
+    }
+
+    private void errorProcess(String key, DelayTuple tuple, DelayElement element){
+        // 调用异常，可配置消费失败处理策略【直接抛弃、重试次数】
+        if (element.getRetried() < element.getRetry() || -1 == element.getRetry()) {
+            element.setRetried(element.getRetried() + 1);
+            delayMetrics.recordRetry(element.getDelayName());
+            byte[] payload = delayElementCodec.encode(element);
+            // hash存储时保留原消息ID
+            delayEnqueuer.requeue(key, tuple.isIndirect() ? tuple.getRaw() : payload, payload, CalendarUtils.getCurrentTimeInMillis(element.getRetryDelay(), Calendar.MILLISECOND));
+        }
+    }
+
+    /**
+     * 批量处理中的一条任务
+     */
+    private static class BatchItem {
+        private final String key;
+        private final DelayTuple tuple;
+        /**
+         * 是否以租约方式认领
+         */
+        private final boolean leased;
+        /**
+         * 是否在处理成功后确认租约
+         */
+        private final boolean ackAfter;
+
+        BatchItem(String key, DelayTuple tuple, boolean leased, boolean ackAfter) {
+            this.key = key;
+            this.tuple = tuple;
+            this.leased = leased;
+            this.ackAfter = ackAfter;
+        }
+    }
+
+    /**
+     * 待处理批次，访问时需同步
+     */
+    private static class PendingBatch {
+        private List<BatchItem> items = new ArrayList<BatchItem>();
+        /**
+         * 等待提交的调度任务
+         */
+        private ScheduledFuture<?> flush;
+
+        List<BatchItem> take() {
+            List<BatchItem> taken = items;
+            items = new ArrayList<BatchItem>();
+            if (flush != null) {
+                flush.cancel(false);
+                flush = null;
+            }
+            return taken;
+        }
+    }
+
 }
@@ -0,0 +1,250 @@
+package com.five.delay.handler;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import com.five.delay.conf.DelayPollModeConf;
+import com.five.delay.utils.ScriptArgsSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 轮询节点注册表
+ * 开启 delay.handler.ownership 后，各节点定时在任务key的节点表（任务key + .nodes. + 消费组）中登记心跳，
+ * 并通过最高随机权重（rendezvous）哈希将每个分片key分配给唯一的存活节点，节点只轮询自己负责的分片key，避免多节点竞争同一个key
+ * 节点加入或下线（心跳过期）后，下一次心跳时重新分配
+ * 节点表按消费组（节点在该key上可消费的delayName集合）区分：多个服务共同消费public、customize模式的key时，
+ * 各服务分别在自己的节点间分配分片key，每个分片key在每个服务中都有一个节点轮询，不会因分配给其他服务的节点而漏掉本服务的任务
+ *
+ * @author luopeng
+ * @date 2026-10-18 15:10
+ * @remark
+ */
+@Component
+public class DelayNodeRegistry {
+    private static Logger logger = LoggerFactory.getLogger(DelayNodeRegistry.class);
+
+    private static final DefaultRedisScript<List> HEARTBEAT_SCRIPT = new DefaultRedisScript<List>();
+
+    static {
+        HEARTBEAT_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("com/five/delay/script/heartbeat.lua")));
+        HEARTBEAT_SCRIPT.setResultType(List.class);
+    }
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    /**
+     * 是否按节点分配分片key，默认关闭（所有节点轮询所有key）
+     */
+    private @Value("${delay.handler.ownership:false}")
+    boolean ownership;
+    /**
+     * 心跳间隔(毫秒)
+     */
+    private @Value("${delay.handler.heartbeatInterval:3000}")
+    long heartbeatInterval;
+    /**
+     * 节点心跳过期时长(毫秒)，节点宕机后，其负责的分片key最长在该时长后被其他节点接管
+     */
+    private @Value("${delay.handler.nodeTimeout:10000}")
+    long nodeTimeout;
+
+    /**
+     * 本节点ID
+     */
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + IdUtil.fastSimpleUUID().substring(0, 8);
+
+    /**
+     * 任务key（不含分片序号）与其分片key
+     */
+    private final Map<String, List<String>> shardKeys = new ConcurrentHashMap<String, List<String>>();
+
+    /**
+     * 任务key（不含分片序号）与其节点表key
+     */
+    private final Map<String, String> nodesKeys = new ConcurrentHashMap<String, String>();
+
+    /**
+     * 本节点负责轮询的分片key
+     */
+    private volatile Set<String> ownedKeys = Collections.emptySet();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 登记本节点轮询的任务key，首次登记时开始心跳
+     * @param taskKey 任务key（含前缀，不含分片序号）
+     * @param keys 任务key的分片key
+     */
+    public void register(String taskKey, List<String> keys) {
+        if (!ownership) {
+            return;
+        }
+        nodesKeys.put(taskKey, nodesKey(taskKey, keys));
+        shardKeys.put(taskKey, keys);
+        synchronized (this) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNamePrefix("delay-heartbeat-").setDaemon(true).build());
+                scheduler.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        heartbeat();
+                    }
+                }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        // 登记后立即心跳，确定本节点负责的分片key
+        heartbeat();
+    }
+
+    /**
+     * 本节点是否负责轮询该分片key
+     * @param key 分片key
+     * @return 未开启 ownership 时始终为true
+     */
+    public boolean isOwner(String key) {
+        return !ownership || ownedKeys.contains(key);
+    }
+
+    /**
+     * 发送心跳并重新分配分片key，所有任务key的节点表在一次脚本调用中更新
+     */
+    synchronized void heartbeat() {
+        if (shardKeys.isEmpty()) {
+            return;
+        }
+        List<String> taskKeys = new ArrayList<String>(shardKeys.keySet());
+        try {
+            long now = System.currentTimeMillis();
+            List<Object> reply = (List<Object>) redisTemplate.execute(HEARTBEAT_SCRIPT, ScriptArgsSerializer.INSTANCE,
+                    RedisSerializer.byteArray(), nodesKeys(taskKeys), now, nodeId, now + nodeTimeout, nodeTimeout * 2);
+            Set<String> owned = new HashSet<String>();
+            for (int i = 0; i < taskKeys.size(); i++) {
+                List<String> nodes = new ArrayList<String>();
+                for (Object node : (List<Object>) reply.get(i)) {
+                    nodes.add(new String((byte[]) node, StandardCharsets.UTF_8));
+                }
+                if (!nodes.contains(nodeId)) {
+                    nodes.add(nodeId);
+                }
+                for (String key : shardKeys.get(taskKeys.get(i))) {
+                    if (nodeId.equals(owner(key, nodes))) {
+                        owned.add(key);
+                    }
+                }
+            }
+            if (!owned.equals(ownedKeys)) {
+                logger.info("节点["+nodeId+"]负责轮询的key变更为："+owned);
+            }
+            ownedKeys = owned;
+        } catch (Exception e) {
+            // 心跳失败时保持当前分配，Redis恢复后重新分配
+            logger.error("节点心跳异常："+e.getMessage());
+        }
+    }
+
+    /**
+     * 节点下线，从节点表中移除本节点，其他节点在下一次心跳时接管
+     */
+    @PreDestroy
+    public void deregister() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            redisTemplate.execute(HEARTBEAT_SCRIPT, ScriptArgsSerializer.INSTANCE, RedisSerializer.byteArray(),
+                    nodesKeys(new ArrayList<String>(shardKeys.keySet())), System.currentTimeMillis(), nodeId, 0, nodeTimeout * 2);
+        } catch (Exception e) {
+            logger.error("节点下线异常："+e.getMessage());
+        }
+    }
+
+    private List<String> nodesKeys(List<String> taskKeys) {
+        List<String> keys = new ArrayList<String>(taskKeys.size());
+        for (String taskKey : taskKeys) {
+            keys.add(nodesKeys.get(taskKey));
+        }
+        return keys;
+    }
+
+    /**
+     * 任务key的节点表key：任务key + .nodes. + 消费组
+     * 消费组为本节点在该key上可消费的delayName集合的哈希，只有消费集合相同的节点（同一服务）共同分配分片key
+     * @param taskKey 任务key（含前缀，不含分片序号）
+     * @param keys 任务key的分片key
+     * @return 节点表key
+     */
+    private String nodesKey(String taskKey, List<String> keys) {
+        Set<String> delayNames = new TreeSet<String>();
+        for (String key : keys) {
+            Set<String> names = DelayParser.keyDelays.get(key);
+            if (names != null) {
+                delayNames.addAll(names);
+            }
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : String.join("\n", delayNames).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return taskKey + DelayPollModeConf.NODES_KEY_SUFFIX + "." + Long.toHexString(hash);
+    }
+
+    /**
+     * 最高随机权重哈希：分片key分配给权重最大的节点，节点加入或下线时只影响该节点相关的分片key
+     * @param key 分片key
+     * @param nodes 存活节点
+     * @return 负责的节点ID
+     */
+    private String owner(String key, List<String> nodes) {
+        String owner = null;
+        long max = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = weight(node, key);
+            if (owner == null || weight > max || (weight == max && node.compareTo(owner) < 0)) {
+                max = weight;
+                owner = node;
+            }
+        }
+        return owner;
+    }
+
+    private long weight(String node, String key) {
+        // FNV-1a 64位哈希，再经过 murmur3 fmix64 混淆
+        long hash = 0xcbf29ce484222325L;
+        byte[] bytes = (node + '\n' + key).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -2,7 +2,9 @@ package com.five.delay.handler;
 
 import java.lang.reflect.Method;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface DelayParser {
 
@@ -11,6 +13,21 @@ public interface DelayParser {
      */
     Set<String> delays = new HashSet<String>();
 
+    /**
+     * 本地 key（含前缀 delay.task.）与其上 DelayListener 的对应关系
+     */
+    Map<String, Set<String>> keyDelays = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * 本地延迟任务处理器调用表，key为delayName
+     */
+    Map<String, DelayHandlerInvoker> invokers = new ConcurrentHashMap<String, DelayHandlerInvoker>();
+
+    /**
+     * 本地 key（含前缀 delay.task.，不含分片序号）的分片数
+     */
+    Map<String, Integer> keyShards = new ConcurrentHashMap<String, Integer>();
+
     /**
      * 解析延迟任务方法配置
      * @param method @DelayListener注解的方法
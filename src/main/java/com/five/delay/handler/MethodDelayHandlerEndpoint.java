@@ -1,5 +1,6 @@
 package com.five.delay.handler;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.five.delay.annotation.DelayListener;
 
@@ -28,7 +29,9 @@ public class MethodDelayHandlerEndpoint implements Serializable {
     private Class<?>[] parameterTypes;
     /**
      * 任务方法所属实例
+     * 仅本地使用，不写入Redis（任务分发使用本地的 {@link DelayHandlerInvoker}）
      */
+    @JsonIgnore
     private Object obj;
     /**
      * 延迟任务消息存放的key
@@ -49,10 +52,20 @@ public class MethodDelayHandlerEndpoint implements Serializable {
      */
     private String consumeContextId;
 
+    /**
+     * 任务key的分片数，小于等于1时不分片
+     */
+    private int shards;
+
     public MethodDelayHandlerEndpoint() {
     }
 
     public MethodDelayHandlerEndpoint(String delayName, String key, int retry, int retryDelay, String consumeContextId, String methodName, Class<?>[] parameterTypes, Object obj) {
+        this(delayName, key, retry, retryDelay, consumeContextId, methodName, parameterTypes, obj, 1);
+    }
+
+    public MethodDelayHandlerEndpoint(String delayName, String key, int retry, int retryDelay, String consumeContextId, String methodName, Class<?>[] parameterTypes, Object obj, int shards) {
+        this.shards = shards;
         this.delayName = delayName;
         this.key = key;
         this.retry = retry;
@@ -95,4 +108,8 @@ public class MethodDelayHandlerEndpoint implements Serializable {
         return consumeContextId;
     }
 
+    public int getShards() {
+        return shards;
+    }
+
 }
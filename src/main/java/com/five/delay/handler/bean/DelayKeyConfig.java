@@ -0,0 +1,66 @@
+package com.five.delay.handler.bean;
+
+/**
+ * 本地缓存的key轮询配置
+ * @author luopeng
+ * @date 2026-10-18 11:40
+ * @remark
+ */
+public class DelayKeyConfig {
+    /**
+     * key中任务的最小延迟时间(毫秒)
+     */
+    private volatile int minDelay;
+    /**
+     * key上所有任务的轮询频率(毫秒)
+     */
+    private volatile int rate;
+    /**
+     * key当前空任务轮询频率(毫秒)
+     */
+    private volatile int emptyRate;
+    /**
+     * 配置是否变更，变更表示空任务轮询频率需要重新计算
+     */
+    private volatile boolean changed;
+    /**
+     * 配置从Redis加载的时间戳
+     */
+    private final long loadTime;
+
+    public DelayKeyConfig(int minDelay, int rate, int emptyRate, boolean changed) {
+        this.minDelay = minDelay;
+        this.rate = rate;
+        this.emptyRate = emptyRate;
+        this.changed = changed;
+        this.loadTime = System.currentTimeMillis();
+    }
+
+    public int getMinDelay() {
+        return minDelay;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getEmptyRate() {
+        return emptyRate;
+    }
+
+    public void setEmptyRate(int emptyRate) {
+        this.emptyRate = emptyRate;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public void setChanged(boolean changed) {
+        this.changed = changed;
+    }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+}
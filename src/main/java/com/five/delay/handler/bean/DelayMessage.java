@@ -1,5 +1,7 @@
 package com.five.delay.handler.bean;
 
+import com.five.delay.conf.DelayPollModeConf;
+
 import java.util.Calendar;
 
 /**
@@ -24,6 +26,14 @@ public class DelayMessage<T> {
      * 任务延迟时间单位
      */
     private int calendarTimeUnit;
+    /**
+     * 去重key（业务key），不为空时同一延迟任务下相同去重key的任务在到期前只保留一个
+     */
+    private String dedupKey;
+    /**
+     * 去重策略：keepEarliest（默认）、keepLatest、replace，见DelayPollModeConf.DEDUP_*
+     */
+    private String dedupPolicy = DelayPollModeConf.DEDUP_KEEP_EARLIEST;
 
     public DelayMessage(){
     }
@@ -70,4 +80,20 @@ public class DelayMessage<T> {
     public void setCalendarTimeUnit(int calendarTimeUnit) {
         this.calendarTimeUnit = calendarTimeUnit;
     }
+
+    public String getDedupKey() {
+        return dedupKey;
+    }
+
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    public String getDedupPolicy() {
+        return dedupPolicy;
+    }
+
+    public void setDedupPolicy(String dedupPolicy) {
+        this.dedupPolicy = dedupPolicy;
+    }
 }
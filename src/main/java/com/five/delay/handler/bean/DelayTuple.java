@@ -0,0 +1,98 @@
+package com.five.delay.handler.bean;
+
+import com.five.delay.codec.DelayElementCodec;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+
+import java.util.Arrays;
+
+/**
+ * 认领的任务元素，同时保留元素在Redis中的原始字节，用于确认(删除)或归还租约
+ * hash存储方式下，zSet元素为消息ID，任务元素的字节从消息体key中读取
+ * 消息体延迟解码：轮询线程只读取头部的delayName，首次调用 {@link #getValue()} 时（处理线程中）才解码整个元素
+ * @author luopeng
+ * @date 2026-10-18 13:20
+ * @remark
+ */
+public class DelayTuple extends DefaultTypedTuple<DelayElement> {
+
+    /**
+     * 元素在Redis中的原始字节（zSet元素）
+     */
+    private final byte[] raw;
+    /**
+     * 任务元素的字节，inline存储时等于raw
+     */
+    private final byte[] payload;
+    /**
+     * 延迟解码使用的编解码器
+     */
+    private final DelayElementCodec codec;
+    private DelayElement element;
+    private String delayName;
+
+    public DelayTuple(byte[] raw, byte[] payload, Double score, DelayElementCodec codec) {
+        super(null, score);
+        this.raw = raw;
+        this.payload = payload == null ? raw : payload;
+        this.codec = codec;
+    }
+
+    public byte[] getRaw() {
+        return raw;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * 是否为hash存储（zSet元素为消息ID）
+     * @return true：hash存储；false：inline存储
+     */
+    public boolean isIndirect() {
+        return payload != raw;
+    }
+
+    /**
+     * 解码后的任务元素，首次调用时解码
+     * @return 任务元素
+     */
+    @Override
+    public DelayElement getValue() {
+        if (element == null) {
+            element = codec.decode(payload);
+        }
+        return element;
+    }
+
+    /**
+     * 任务元素的delayName，未解码时只读取头部
+     * @return delayName
+     */
+    public String getDelayName() {
+        if (element != null) {
+            return element.getDelayName();
+        }
+        if (delayName == null) {
+            delayName = codec.readDelayName(payload);
+        }
+        return delayName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DelayTuple)) {
+            return false;
+        }
+        DelayTuple that = (DelayTuple) o;
+        return Arrays.equals(raw, that.raw) && (getScore() == null ? that.getScore() == null : getScore().equals(that.getScore()));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(raw) + (getScore() == null ? 0 : getScore().hashCode());
+    }
+}
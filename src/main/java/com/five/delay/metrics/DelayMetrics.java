@@ -0,0 +1,205 @@
+package com.five.delay.metrics;
+
+import com.five.delay.engine.DelayExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 延迟任务监控指标
+ * 工程中存在Micrometer的MeterRegistry（如引入spring-boot-starter-actuator）时输出指标，否则不记录；指标名称见 {@link MicrometerRecorder}
+ * 容器中所有单例创建完成后再获取MeterRegistry，不依赖自动配置的加载顺序
+ *
+ * @author luopeng
+ * @date 2026-10-18 17:30
+ * @remark
+ */
+@Component
+public class DelayMetrics implements SmartInitializingSingleton {
+
+    private static Logger logger = LoggerFactory.getLogger(DelayMetrics.class);
+
+    private static final String METER_REGISTRY_CLASS = "io.micrometer.core.instrument.MeterRegistry";
+
+    /**
+     * 处理结果：成功
+     */
+    public static final String OUTCOME_SUCCESS = "success";
+    /**
+     * 处理结果：失败（处理器抛出异常）
+     */
+    public static final String OUTCOME_FAILURE = "failure";
+    /**
+     * 处理结果：超时
+     */
+    public static final String OUTCOME_TIMEOUT = "timeout";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private volatile Recorder recorder = null;
+
+    /**
+     * 绑定MeterRegistry前创建的执行器
+     */
+    private final Map<String, DelayExecutor> executors = new ConcurrentHashMap<String, DelayExecutor>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!ClassUtils.isPresent(METER_REGISTRY_CLASS, getClass().getClassLoader())) {
+            return;
+        }
+        Recorder micrometer = MicrometerRecorder.create(applicationContext);
+        if (micrometer == null) {
+            return;
+        }
+        synchronized (executors) {
+            for (Map.Entry<String, DelayExecutor> executor : executors.entrySet()) {
+                micrometer.bindExecutor(executor.getKey(), executor.getValue());
+            }
+            recorder = micrometer;
+        }
+        logger.info("延迟任务监控指标已注册到MeterRegistry");
+    }
+
+    /**
+     * 记录一次认领的耗时（Redis往返）
+     * @param key 任务key
+     * @param startNanos 开始时间(System.nanoTime)
+     */
+    public void recordPoll(String key, long startNanos) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.poll(key, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 记录一次认领的结果
+     * @param key 任务key
+     * @param claimed 认领的任务数
+     * @param skipped 跳过的本地服务无法消费的任务数
+     */
+    public void recordClaim(String key, int claimed, int skipped) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.claim(key, claimed, skipped);
+        }
+    }
+
+    /**
+     * 记录一次空轮询（key中没有任务）
+     * @param key 任务key
+     */
+    public void recordEmptyPoll(String key) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.emptyPoll(key);
+        }
+    }
+
+    /**
+     * 记录一次竞争认领失败（range认领方式下任务被其他节点删除、租约确认时已过期）
+     * @param key 任务key
+     */
+    public void recordLostRace(String key) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.lostRace(key);
+        }
+    }
+
+    /**
+     * 记录投递延迟：开始处理的时间 - 任务到期时间
+     * @param delayName 延迟任务名
+     * @param score 任务到期时间戳
+     */
+    public void recordLateness(String delayName, Double score) {
+        Recorder r = recorder;
+        if (r != null && score != null) {
+            r.lateness(delayName, Math.max(0, System.currentTimeMillis() - score.longValue()));
+        }
+    }
+
+    /**
+     * 记录处理器调用耗时与结果
+     * @param delayName 延迟任务名
+     * @param startNanos 开始时间(System.nanoTime)
+     * @param outcome 处理结果
+     */
+    public void recordHandler(String delayName, long startNanos, String outcome) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.handler(delayName, outcome, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 记录一次失败重试（任务重新写入）
+     * @param delayName 延迟任务名
+     */
+    public void recordRetry(String delayName) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.retry(delayName);
+        }
+    }
+
+    /**
+     * 记录一次发送的耗时
+     * @param batch 是否批量发送
+     * @param startNanos 开始时间(System.nanoTime)
+     */
+    public void recordSend(boolean batch, long startNanos) {
+        Recorder r = recorder;
+        if (r != null) {
+            r.send(batch, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 注册执行器的队列长度与活动线程数
+     * @param name 执行器名称
+     * @param executor 执行器
+     */
+    public void bindExecutor(String name, DelayExecutor executor) {
+        synchronized (executors) {
+            if (recorder == null) {
+                executors.put(name, executor);
+                return;
+            }
+        }
+        recorder.bindExecutor(name, executor);
+    }
+
+    /**
+     * 指标记录器
+     */
+    interface Recorder {
+
+        void poll(String key, long nanos);
+
+        void claim(String key, int claimed, int skipped);
+
+        void emptyPoll(String key);
+
+        void lostRace(String key);
+
+        void lateness(String delayName, long millis);
+
+        void handler(String delayName, String outcome, long nanos);
+
+        void retry(String delayName);
+
+        void send(boolean batch, long nanos);
+
+        void bindExecutor(String name, DelayExecutor executor);
+    }
+}
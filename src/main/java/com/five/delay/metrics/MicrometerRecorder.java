@@ -0,0 +1,123 @@
+package com.five.delay.metrics;
+
+import com.five.delay.engine.DelayExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer指标记录器，仅在工程中存在Micrometer时加载
+ * <pre>
+ * delay.poll                  Timer    认领耗时（Redis往返）              tag: key
+ * delay.poll.claimed          Counter  认领的任务数                       tag: key
+ * delay.poll.skipped          Counter  跳过的本地服务无法消费的任务数     tag: key
+ * delay.poll.lost             Counter  竞争认领失败数                     tag: key
+ * delay.poll.empty            Counter  空轮询次数                         tag: key
+ * delay.delivery.lateness     Timer    投递延迟（处理时间 - 到期时间）    tag: delayName，输出百分位直方图
+ * delay.handler               Timer    处理器调用耗时                     tag: delayName、outcome(success/failure/timeout)
+ * delay.retry                 Counter  失败重试次数                       tag: delayName
+ * delay.send                  Timer    发送耗时                           tag: type(single/batch)
+ * delay.executor.queue        Gauge    执行器队列长度                     tag: executor
+ * delay.executor.active       Gauge    执行器活动线程数                   tag: executor
+ * </pre>
+ * @author luopeng
+ * @date 2026-10-18 17:30
+ * @remark
+ */
+class MicrometerRecorder implements DelayMetrics.Recorder {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> pollTimers = new ConcurrentHashMap<String, Timer>();
+    private final Map<String, Counter> claimedCounters = new ConcurrentHashMap<String, Counter>();
+    private final Map<String, Counter> skippedCounters = new ConcurrentHashMap<String, Counter>();
+    private final Map<String, Counter> lostCounters = new ConcurrentHashMap<String, Counter>();
+    private final Map<String, Counter> emptyCounters = new ConcurrentHashMap<String, Counter>();
+    private final Map<String, Timer> latenessTimers = new ConcurrentHashMap<String, Timer>();
+    private final Map<String, Timer> handlerTimers = new ConcurrentHashMap<String, Timer>();
+    private final Map<String, Counter> retryCounters = new ConcurrentHashMap<String, Counter>();
+    private final Timer singleSendTimer;
+    private final Timer batchSendTimer;
+
+    private MicrometerRecorder(MeterRegistry registry) {
+        this.registry = registry;
+        this.singleSendTimer = Timer.builder("delay.send").tag("type", "single").register(registry);
+        this.batchSendTimer = Timer.builder("delay.send").tag("type", "batch").register(registry);
+    }
+
+    /**
+     * 从容器中获取MeterRegistry创建记录器
+     * @param applicationContext 容器
+     * @return 记录器，容器中不存在MeterRegistry时返回null
+     */
+    static MicrometerRecorder create(ApplicationContext applicationContext) {
+        MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        return registry == null ? null : new MicrometerRecorder(registry);
+    }
+
+    @Override
+    public void poll(String key, long nanos) {
+        pollTimers.computeIfAbsent(key, k -> Timer.builder("delay.poll").tag("key", k).register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void claim(String key, int claimed, int skipped) {
+        if (claimed > 0) {
+            counter(claimedCounters, "delay.poll.claimed", "key", key).increment(claimed);
+        }
+        if (skipped > 0) {
+            counter(skippedCounters, "delay.poll.skipped", "key", key).increment(skipped);
+        }
+    }
+
+    @Override
+    public void emptyPoll(String key) {
+        counter(emptyCounters, "delay.poll.empty", "key", key).increment();
+    }
+
+    @Override
+    public void lostRace(String key) {
+        counter(lostCounters, "delay.poll.lost", "key", key).increment();
+    }
+
+    @Override
+    public void lateness(String delayName, long millis) {
+        latenessTimers.computeIfAbsent(delayName, k -> Timer.builder("delay.delivery.lateness").tag("delayName", k)
+                .publishPercentileHistogram().register(registry))
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void handler(String delayName, String outcome, long nanos) {
+        handlerTimers.computeIfAbsent(delayName + "|" + outcome, k -> Timer.builder("delay.handler")
+                .tag("delayName", delayName).tag("outcome", outcome).register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void retry(String delayName) {
+        counter(retryCounters, "delay.retry", "delayName", delayName).increment();
+    }
+
+    @Override
+    public void send(boolean batch, long nanos) {
+        (batch ? batchSendTimer : singleSendTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bindExecutor(String name, DelayExecutor executor) {
+        Gauge.builder("delay.executor.queue", executor, DelayExecutor::getQueueSize).tag("executor", name).register(registry);
+        Gauge.builder("delay.executor.active", executor, DelayExecutor::getActiveCount).tag("executor", name).register(registry);
+    }
+
+    private Counter counter(Map<String, Counter> counters, String name, String tagKey, String tagValue) {
+        return counters.computeIfAbsent(tagValue, k -> Counter.builder(name).tag(tagKey, k).register(registry));
+    }
+}
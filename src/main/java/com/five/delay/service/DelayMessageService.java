@@ -2,6 +2,9 @@ package com.five.delay.service;
 
 import com.five.delay.handler.bean.DelayMessage;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author luopeng
  * @date 2021-12-31 17:10
@@ -11,25 +14,90 @@ public interface DelayMessageService {
 
     /**
      * 发送延迟任务消息，默认模式
+     * 一次enqueue.lua脚本调用写入任务并更新key的最小延迟时间配置；含去重key时写入前多一次往返，读取去重key中记录的任务key
      * @param delayMessage
+     * @return 消息ID，用于取消、修改任务；inline存储方式（delay.handler.storeMode）下为null
      * @throws Exception
      */
-    void sendMessage(DelayMessage delayMessage) throws Exception;
+    String sendMessage(DelayMessage delayMessage) throws Exception;
 
     /**
      * 发送延迟任务消息，默认模式
      * @param delayMessage
      * @param pollMode
+     * @return 消息ID，用于取消、修改任务；inline存储方式（delay.handler.storeMode）下为null
      * @throws Exception
      */
-    void sendMessage(DelayMessage delayMessage, String pollMode) throws Exception;
+    String sendMessage(DelayMessage delayMessage, String pollMode) throws Exception;
 
     /**
      * 发送延迟任务消息，指定模式、key
      * @param delayMessage
      * @param pollMode
      * @param key
+     * @return 消息ID，用于取消、修改任务；inline存储方式（delay.handler.storeMode）下为null
+     * @throws Exception
+     */
+    String sendMessage(DelayMessage delayMessage, String pollMode, String key) throws Exception;
+
+    /**
+     * 批量发送延迟任务消息，默认模式
+     * 按目标key分组，所有分组在同一次enqueue.lua脚本调用中写入（每组一次多元素ZADD，并更新各key的最小延迟时间配置），一次往返
+     * 含去重key（DelayMessage.setDedupKey）的消息，写入前多一次往返：以一次流水线读取各去重key中记录的任务key
+     * @param delayMessages
+     * @return 与delayMessages顺序一致的消息ID；inline存储方式下为null
+     * @throws Exception
+     */
+    List<String> sendMessages(Collection<DelayMessage<?>> delayMessages) throws Exception;
+
+    /**
+     * 批量发送延迟任务消息，指定模式
+     * @param delayMessages
+     * @param pollMode
+     * @return 与delayMessages顺序一致的消息ID；inline存储方式下为null
+     * @throws Exception
+     */
+    List<String> sendMessages(Collection<DelayMessage<?>> delayMessages, String pollMode) throws Exception;
+
+    /**
+     * 批量发送延迟任务消息，指定模式、key
+     * @param delayMessages
+     * @param pollMode
+     * @param key
+     * @return 与delayMessages顺序一致的消息ID；inline存储方式下为null
+     * @throws Exception
+     */
+    List<String> sendMessages(Collection<DelayMessage<?>> delayMessages, String pollMode, String key) throws Exception;
+
+    /**
+     * 按消息ID取消延迟任务（需hash存储方式），两次往返（读取消息索引、执行取消脚本）
+     * 默认的inline存储方式（delay.handler.storeMode=inline）下不生成消息ID、不记录消息索引，调用不做任何修改，始终返回false
+     * @param id sendMessage返回的消息ID
+     * @return true：取消成功；false：消息不存在（已被处理或已取消）
+     * @throws Exception
+     */
+    boolean cancel(String id) throws Exception;
+
+    /**
+     * 按消息ID修改延迟任务的延迟时间（秒，从当前时间开始计算，需hash存储方式），两次往返（读取消息索引、执行修改脚本）
+     * 去重的消息同步修改去重记录的过期时间，到期前重复发送仍按去重策略处理
+     * 默认的inline存储方式（delay.handler.storeMode=inline）下不生成消息ID、不记录消息索引，调用不做任何修改，始终返回false
+     * @param id sendMessage返回的消息ID
+     * @param delay 新的延迟时间
+     * @return true：修改成功；false：消息不存在或已到期被认领
+     * @throws Exception
+     */
+    boolean reschedule(String id, int delay) throws Exception;
+
+    /**
+     * 按消息ID修改延迟任务的延迟时间（从当前时间开始计算，需hash存储方式），两次往返（读取消息索引、执行修改脚本）
+     * 去重的消息同步修改去重记录的过期时间，到期前重复发送仍按去重策略处理
+     * 默认的inline存储方式（delay.handler.storeMode=inline）下不生成消息ID、不记录消息索引，调用不做任何修改，始终返回false
+     * @param id sendMessage返回的消息ID
+     * @param delay 新的延迟时间
+     * @param calendarTimeUnit 时间单位（Calendar.SECOND等）
+     * @return true：修改成功；false：消息不存在或已到期被认领
      * @throws Exception
      */
-    void sendMessage(DelayMessage delayMessage, String pollMode, String key) throws Exception;
+    boolean reschedule(String id, int delay, int calendarTimeUnit) throws Exception;
 }
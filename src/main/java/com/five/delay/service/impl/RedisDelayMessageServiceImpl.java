@@ -1,19 +1,27 @@
 package com.five.delay.service.impl;
 
 import cn.hutool.core.util.StrUtil;
+import com.five.delay.codec.DelayElementCodec;
 import com.five.delay.conf.DelayPollModeConf;
-import com.five.delay.handler.DelayParser;
+import com.five.delay.handler.DelayEnqueuer;
 import com.five.delay.handler.bean.DelayMessage;
 import com.five.delay.handler.bean.DelayElement;
 import com.five.delay.handler.MethodDelayHandlerEndpoint;
+import com.five.delay.metrics.DelayMetrics;
 import com.five.delay.service.DelayMessageService;
 import com.five.delay.utils.CalendarUtils;
+import com.five.delay.utils.ShardUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author luopeng
  * @date 2021-12-31 17:11
@@ -27,55 +35,287 @@ public class RedisDelayMessageServiceImpl implements DelayMessageService {
     @Autowired
     private RedisTemplate redisTemplate;
     @Autowired
-    private DelayParser delayParser;
+    private DelayEnqueuer delayEnqueuer;
+    @Autowired
+    private DelayElementCodec delayElementCodec;
+    @Autowired
+    private DelayMetrics delayMetrics;
+
+    /**
+     * 延迟任务配置本地缓存时长(毫秒)，避免每次发送都读取 delay.meta.handler
+     */
+    private @Value("${delay.handler.endpointCacheTtl:60000}")
+    long endpointCacheTtl;
+
+    /**
+     * 延迟任务配置本地缓存
+     */
+    private final ConcurrentHashMap<String, CachedEndpoint> endpointCache = new ConcurrentHashMap<String, CachedEndpoint>();
 
     @Override
-    public void sendMessage(DelayMessage delayMessage) throws Exception {
-        sendMessage(delayMessage, DelayPollModeConf.MODE_EXCLUSIVE, null);
+    public String sendMessage(DelayMessage delayMessage) throws Exception {
+        return sendMessage(delayMessage, DelayPollModeConf.MODE_EXCLUSIVE, null);
     }
 
     @Override
-    public void sendMessage(DelayMessage delayMessage, String pollMode) throws Exception {
-        sendMessage(delayMessage, pollMode, null);
+    public String sendMessage(DelayMessage delayMessage, String pollMode) throws Exception {
+        return sendMessage(delayMessage, pollMode, null);
     }
 
     @Override
-    public void sendMessage(DelayMessage delayMessage, String pollMode, String appointKey) throws Exception {
+    public String sendMessage(DelayMessage delayMessage, String pollMode, String appointKey) throws Exception {
+        long start = System.nanoTime();
         // 获得延迟任务配置的key
-        MethodDelayHandlerEndpoint endpoint = (MethodDelayHandlerEndpoint) redisTemplate.opsForHash().get(DelayPollModeConf.DELAY_METADATA_HANDLER_MAP, delayMessage.getDelayName());
-        String key;
-        if (null == endpoint || StrUtil.isEmpty(endpoint.getKey())) {
-            if (StrUtil.isEmpty(appointKey)) {
-                if (StrUtil.isEmpty(pollMode)) {
-                    // 如果未指定模式，则使用默认模型，否则使用exclusive模型独立轮询
-                    pollMode = DelayPollModeConf.MODE_EXCLUSIVE;
-                }
-                if (DelayPollModeConf.MODE_EXCLUSIVE.equals(pollMode) || DelayPollModeConf.MODE_CUSTOMIZE.equals(pollMode)) {
-                    key = delayMessage.getDelayName();
-                } else if (DelayPollModeConf.MODE_PUBLIC.equals(pollMode)) {
-                    key = DelayPollModeConf.PUBLIC_MODE_KEY;
-                } else {
-                    throw new Exception("延迟消息添加失败，错误的Mode:"+pollMode);
-                }
+        MethodDelayHandlerEndpoint endpoint = getEndpoint(delayMessage.getDelayName());
+        String key = resolveKey(delayMessage, endpoint, pollMode, appointKey);
+        DelayElement element = buildElement(delayMessage, endpoint);
+        byte[] payload = delayElementCodec.encode(element);
+        byte[] member = delayEnqueuer.newMember(payload);
+        long now = System.currentTimeMillis();
+        long score = CalendarUtils.getCurrentTimeInMillis(delayMessage.getDelay(), delayMessage.getCalendarTimeUnit());
+        DelayEnqueuer.Batch batch = new DelayEnqueuer.Batch(shardKey(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX+key, endpoint, member));
+        int index = batch.add(member, payload, score, toDelayMillis(score, now), dedupKey(delayMessage), delayMessage.getDedupPolicy());
+        try {
+            // 写入任务的同时，判断更新key的最小超时时间 [delay]
+            delayEnqueuer.enqueue(Collections.singletonList(batch));
+        } catch (Exception e) {
+            throw new Exception("延迟任务添加失败..."+e.getMessage());
+        }
+        delayMetrics.recordSend(false, start);
+        return messageId(batch.getMember(index));
+    }
+
+    @Override
+    public List<String> sendMessages(Collection<DelayMessage<?>> delayMessages) throws Exception {
+        return sendMessages(delayMessages, DelayPollModeConf.MODE_EXCLUSIVE, null);
+    }
+
+    @Override
+    public List<String> sendMessages(Collection<DelayMessage<?>> delayMessages, String pollMode) throws Exception {
+        return sendMessages(delayMessages, pollMode, null);
+    }
+
+    @Override
+    public List<String> sendMessages(Collection<DelayMessage<?>> delayMessages, String pollMode, String appointKey) throws Exception {
+        if (delayMessages == null || delayMessages.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        // 本地缓存中没有的延迟任务配置，一次 HMGET 获得
+        Map<String, MethodDelayHandlerEndpoint> endpoints = getEndpoints(delayMessages);
+
+        // 按目标key分组，所有分组在同一次脚本调用中写入
+        Map<String, DelayEnqueuer.Batch> batches = new LinkedHashMap<String, DelayEnqueuer.Batch>();
+        List<DelayEnqueuer.Batch> messageBatches = new ArrayList<DelayEnqueuer.Batch>(delayMessages.size());
+        List<Integer> messageIndexes = new ArrayList<Integer>(delayMessages.size());
+        long now = System.currentTimeMillis();
+        for (DelayMessage<?> delayMessage : delayMessages) {
+            MethodDelayHandlerEndpoint endpoint = endpoints.get(delayMessage.getDelayName());
+            DelayElement element = buildElement(delayMessage, endpoint);
+            byte[] payload = delayElementCodec.encode(element);
+            byte[] member = delayEnqueuer.newMember(payload);
+            String key = shardKey(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX + resolveKey(delayMessage, endpoint, pollMode, appointKey), endpoint, member);
+            long score = CalendarUtils.getCurrentTimeInMillis(delayMessage.getDelay(), delayMessage.getCalendarTimeUnit());
+            DelayEnqueuer.Batch batch = batches.computeIfAbsent(key, k -> new DelayEnqueuer.Batch(k));
+            messageIndexes.add(batch.add(member, payload, score, toDelayMillis(score, now), dedupKey(delayMessage), delayMessage.getDedupPolicy()));
+            messageBatches.add(batch);
+        }
+
+        try {
+            delayEnqueuer.enqueue(batches.values());
+        } catch (Exception e) {
+            throw new Exception("延迟任务批量添加失败..."+e.getMessage());
+        }
+        delayMetrics.recordSend(true, start);
+        List<String> ids = new ArrayList<String>(delayMessages.size());
+        for (int i = 0; i < messageBatches.size(); i++) {
+            ids.add(messageId(messageBatches.get(i).getMember(messageIndexes.get(i))));
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean cancel(String id) throws Exception {
+        try {
+            return delayEnqueuer.cancel(id);
+        } catch (Exception e) {
+            throw new Exception("延迟任务取消失败..."+e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean reschedule(String id, int delay) throws Exception {
+        return reschedule(id, delay, Calendar.SECOND);
+    }
+
+    @Override
+    public boolean reschedule(String id, int delay, int calendarTimeUnit) throws Exception {
+        long now = System.currentTimeMillis();
+        long score = CalendarUtils.getCurrentTimeInMillis(delay, calendarTimeUnit);
+        try {
+            return delayEnqueuer.reschedule(id, score, toDelayMillis(score, now));
+        } catch (Exception e) {
+            throw new Exception("延迟任务修改失败..."+e.getMessage());
+        }
+    }
+
+    /**
+     * 获得消息ID
+     * @param member zSet元素（去重时为最终保留的zSet元素）
+     * @return hash存储时为消息ID，inline存储时为null
+     */
+    private String messageId(byte[] member) {
+        return delayEnqueuer.isHashStore() ? new String(member, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 获得消息的去重key
+     * @param delayMessage 延迟任务消息
+     * @return 去重key，消息未指定去重key时为null
+     * @throws Exception 错误的去重策略
+     */
+    private String dedupKey(DelayMessage<?> delayMessage) throws Exception {
+        if (StrUtil.isEmpty(delayMessage.getDedupKey())) {
+            return null;
+        }
+        String policy = delayMessage.getDedupPolicy();
+        if (!DelayPollModeConf.DEDUP_KEEP_EARLIEST.equals(policy) && !DelayPollModeConf.DEDUP_KEEP_LATEST.equals(policy)
+                && !DelayPollModeConf.DEDUP_REPLACE.equals(policy)) {
+            throw new Exception("延迟消息添加失败，错误的去重策略:"+policy);
+        }
+        return DelayPollModeConf.DEDUP_KEY_PREFIX + delayMessage.getDelayName() + ":" + delayMessage.getDedupKey();
+    }
+
+    /**
+     * 获得延迟任务配置，优先使用本地缓存
+     * @param delayName 延迟任务名
+     * @return 延迟任务配置，未配置时为null
+     */
+    private MethodDelayHandlerEndpoint getEndpoint(String delayName) {
+        CachedEndpoint cached = endpointCache.get(delayName);
+        if (cached != null && !cached.isExpired()) {
+            return cached.endpoint;
+        }
+        MethodDelayHandlerEndpoint endpoint = (MethodDelayHandlerEndpoint) redisTemplate.opsForHash().get(DelayPollModeConf.DELAY_METADATA_HANDLER_MAP, delayName);
+        endpointCache.put(delayName, new CachedEndpoint(endpoint, System.currentTimeMillis() + endpointCacheTtl));
+        return endpoint;
+    }
+
+    /**
+     * 批量获得延迟任务配置，本地缓存中没有的配置一次 HMGET 获得
+     * @param delayMessages 延迟任务消息
+     * @return delayName与延迟任务配置的对应关系
+     */
+    private Map<String, MethodDelayHandlerEndpoint> getEndpoints(Collection<DelayMessage<?>> delayMessages) {
+        Map<String, MethodDelayHandlerEndpoint> endpoints = new HashMap<String, MethodDelayHandlerEndpoint>();
+        List<String> missing = new ArrayList<String>();
+        for (DelayMessage<?> delayMessage : delayMessages) {
+            String delayName = delayMessage.getDelayName();
+            if (endpoints.containsKey(delayName) || missing.contains(delayName)) {
+                continue;
+            }
+            CachedEndpoint cached = endpointCache.get(delayName);
+            if (cached != null && !cached.isExpired()) {
+                endpoints.put(delayName, cached.endpoint);
             } else {
-                key = appointKey;
+                missing.add(delayName);
             }
+        }
+        if (!missing.isEmpty()) {
+            List<Object> endpointList = redisTemplate.opsForHash().multiGet(DelayPollModeConf.DELAY_METADATA_HANDLER_MAP, missing);
+            long expireAt = System.currentTimeMillis() + endpointCacheTtl;
+            for (int i = 0; i < missing.size(); i++) {
+                MethodDelayHandlerEndpoint endpoint = (MethodDelayHandlerEndpoint) endpointList.get(i);
+                endpoints.put(missing.get(i), endpoint);
+                endpointCache.put(missing.get(i), new CachedEndpoint(endpoint, expireAt));
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * 计算任务延迟时间(毫秒)
+     * @param score 任务到期时间戳
+     * @param now 当前时间戳
+     * @return 任务延迟时间(毫秒)
+     */
+    private int toDelayMillis(long score, long now) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, score - now));
+    }
+
+    /**
+     * 获得延迟任务消息存放的key（不含前缀）
+     * @param delayMessage 延迟任务消息
+     * @param endpoint 延迟任务配置，可能为null
+     * @param pollMode 轮询模式
+     * @param appointKey 指定的key
+     * @return key
+     * @throws Exception 错误的Mode
+     */
+    private String resolveKey(DelayMessage<?> delayMessage, MethodDelayHandlerEndpoint endpoint, String pollMode, String appointKey) throws Exception {
+        if (null != endpoint && StrUtil.isNotEmpty(endpoint.getKey())) {
+            return endpoint.getKey();
+        }
+        if (StrUtil.isNotEmpty(appointKey)) {
+            return appointKey;
+        }
+        if (StrUtil.isEmpty(pollMode)) {
+            // 如果未指定模式，则使用默认模型，否则使用exclusive模型独立轮询
+            pollMode = DelayPollModeConf.MODE_EXCLUSIVE;
+        }
+        if (DelayPollModeConf.MODE_EXCLUSIVE.equals(pollMode) || DelayPollModeConf.MODE_CUSTOMIZE.equals(pollMode)) {
+            return delayMessage.getDelayName();
+        } else if (DelayPollModeConf.MODE_PUBLIC.equals(pollMode)) {
+            return DelayPollModeConf.PUBLIC_MODE_KEY;
         } else {
-            key = endpoint.getKey();
+            throw new Exception("延迟消息添加失败，错误的Mode:"+pollMode);
         }
+    }
+
+    /**
+     * 获得任务消息写入的分片key
+     * 延迟任务配置了分片时，按元素散列到分片；指定key发送或未获取到延迟任务配置时不分片
+     * @param key 任务key（含前缀）
+     * @param endpoint 延迟任务配置，可能为null
+     * @param member zSet元素
+     * @return 分片key
+     */
+    private String shardKey(String key, MethodDelayHandlerEndpoint endpoint, byte[] member) {
+        if (endpoint == null || endpoint.getShards() <= 1 || StrUtil.isEmpty(endpoint.getKey())) {
+            return key;
+        }
+        return ShardUtils.shardKey(key, ShardUtils.shardOf(member, endpoint.getShards()), endpoint.getShards());
+    }
 
+    /**
+     * 封装zSet元素
+     * @param delayMessage 延迟任务消息
+     * @param endpoint 延迟任务配置，可能为null
+     * @return zSet元素
+     */
+    private DelayElement buildElement(DelayMessage<?> delayMessage, MethodDelayHandlerEndpoint endpoint) {
         DelayElement element = new DelayElement(delayMessage.getDelayName(), delayMessage.getValue());
         if (endpoint != null) {
             element.setRetry(endpoint.getRetry());
             element.setRetryDelay(endpoint.getRetryDelay());
         }
-        try {
-            redisTemplate.opsForZSet().add(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX+key, element, CalendarUtils.getCurrentTimeInMillis(delayMessage.getDelay(), delayMessage.getCalendarTimeUnit()));
-            // 任务添加成功，判断更新key的最小超时时间 [delay]
-            delayParser.setTaskMinDelay(DelayPollModeConf.PUBLIC_MODE_KEY_PREFIX+key, delayMessage.getDelay());
-        } catch (Exception e) {
-            throw new Exception("延迟任务添加失败..."+e.getMessage());
-        }
+        return element;
     }
 
+    /**
+     * 本地缓存的延迟任务配置（可能为null，表示未配置）
+     */
+    private static class CachedEndpoint {
+        private final MethodDelayHandlerEndpoint endpoint;
+        private final long expireAt;
+
+        CachedEndpoint(MethodDelayHandlerEndpoint endpoint, long expireAt) {
+            this.endpoint = endpoint;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package com.five.delay.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 按 tick 精度在到期时间触发回调；超过一圈的元素记录剩余圈数，添加元素O(1)，由单个工作线程推进
+ * 回调在工作线程中执行，应只做提交等轻量操作
+ *
+ * @author luopeng
+ * @date 2026-10-18 13:30
+ * @remark
+ */
+public class HashedTimingWheel<T> {
+    private static Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /**
+     * 每格时长(毫秒)
+     */
+    private final long tickMs;
+    private final List<Timeout<T>>[] wheel;
+    private final int mask;
+    /**
+     * 到期回调
+     */
+    private final Consumer<T> expire;
+    private final String threadName;
+    /**
+     * 新添加、尚未放入时间轮的元素
+     */
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<Timeout<T>>();
+
+    private volatile boolean running;
+    private Thread worker;
+    private long startTime;
+    /**
+     * 已推进的格数，仅工作线程访问
+     */
+    private long tick;
+
+    /**
+     * @param tickMs 每格时长(毫秒)，即触发精度
+     * @param wheelSize 格数，调整为2的幂
+     * @param threadName 工作线程名
+     * @param expire 到期回调
+     */
+    public HashedTimingWheel(long tickMs, int wheelSize, String threadName, Consumer<T> expire) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMs = Math.max(1, tickMs);
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new LinkedList<Timeout<T>>();
+        }
+        this.mask = size - 1;
+        this.threadName = threadName;
+        this.expire = expire;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startTime = System.currentTimeMillis();
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 添加元素
+     * @param deadline 到期时间戳(毫秒)
+     * @param item 元素
+     */
+    public void add(long deadline, T item) {
+        pending.add(new Timeout<T>(deadline, item));
+    }
+
+    /**
+     * 停止时间轮
+     * @return 尚未触发的元素
+     */
+    public synchronized List<T> stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(tickMs * 10 + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<T> unfired = new ArrayList<T>();
+        for (List<Timeout<T>> bucket : wheel) {
+            for (Timeout<T> timeout : bucket) {
+                unfired.add(timeout.item);
+            }
+            bucket.clear();
+        }
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            unfired.add(timeout.item);
+        }
+        return unfired;
+    }
+
+    private void work() {
+        while (running) {
+            long deadline = startTime + (tick + 1) * tickMs;
+            long sleep = deadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    // stop() 唤醒，由 running 判断是否退出
+                    continue;
+                }
+            }
+            transferPending();
+            expireBucket(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * 将新添加的元素放入对应的格子，已过期的元素放入当前格子，本轮立即触发
+     */
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            long calculated = (timeout.deadline - startTime) / tickMs;
+            timeout.rounds = Math.max(0, (calculated - tick) / wheel.length);
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void expireBucket(List<Timeout<T>> bucket) {
+        Iterator<Timeout<T>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                continue;
+            }
+            iterator.remove();
+            try {
+                expire.accept(timeout.item);
+            } catch (Throwable e) {
+                logger.error("时间轮到期回调异常："+e.getMessage());
+            }
+        }
+    }
+
+    private static class Timeout<T> {
+        private final long deadline;
+        private final T item;
+        private long rounds;
+
+        Timeout(long deadline, T item) {
+            this.deadline = deadline;
+            this.item = item;
+        }
+    }
+}
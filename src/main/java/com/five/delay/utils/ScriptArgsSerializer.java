@@ -0,0 +1,34 @@
+package com.five.delay.utils;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lua脚本参数序列化器
+ * byte[] 原样传递（如已序列化的任务元素），其他参数按字符串传递，便于脚本中直接 tonumber/比较
+ * @author luopeng
+ * @date 2026-10-18 09:20
+ * @remark
+ */
+public class ScriptArgsSerializer implements RedisSerializer<Object> {
+
+    public static final ScriptArgsSerializer INSTANCE = new ScriptArgsSerializer();
+
+    @Override
+    public byte[] serialize(Object o) throws SerializationException {
+        if (o == null) {
+            return new byte[0];
+        }
+        if (o instanceof byte[]) {
+            return (byte[]) o;
+        }
+        return String.valueOf(o).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        return bytes;
+    }
+}
@@ -0,0 +1,61 @@
+package com.five.delay.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 任务key分片工具
+ * 分片数大于1时，任务key拆分为 key:0 ... key:N-1 多个zSet，分片数为1时仍使用原key
+ * @author luopeng
+ * @date 2026-10-18 14:30
+ * @remark
+ */
+public class ShardUtils {
+
+    /**
+     * 分片key分隔符
+     */
+    public static final String SHARD_SEPARATOR = ":";
+
+    /**
+     * 获得分片key
+     * @param key 任务key
+     * @param shard 分片序号
+     * @param shards 分片数
+     * @return 分片key
+     */
+    public static String shardKey(String key, int shard, int shards) {
+        if (shards <= 1) {
+            return key;
+        }
+        return key + SHARD_SEPARATOR + shard;
+    }
+
+    /**
+     * 获得任务key的所有分片key
+     * @param key 任务key
+     * @param shards 分片数
+     * @return 分片key
+     */
+    public static List<String> shardKeys(String key, int shards) {
+        List<String> keys = new ArrayList<String>(Math.max(1, shards));
+        for (int i = 0; i < Math.max(1, shards); i++) {
+            keys.add(shardKey(key, i, shards));
+        }
+        return keys;
+    }
+
+    /**
+     * 根据已序列化的任务元素计算分片序号，相同的元素总是写入同一分片（保持zSet对相同元素的去重）
+     * @param member 已序列化的任务元素
+     * @param shards 分片数
+     * @return 分片序号
+     */
+    public static int shardOf(byte[] member, int shards) {
+        if (shards <= 1) {
+            return 0;
+        }
+        return (Arrays.hashCode(member) & Integer.MAX_VALUE) % shards;
+    }
+}
@@ -0,0 +1,23 @@
+-- 按消息ID取消延迟任务：删除任务key（及租约key）中的消息ID、消息体与索引，整个过程在一次调用内原子完成
+-- KEYS[1]    消息索引key(hash)，field为消息ID，value为任务key
+-- KEYS[2]    任务key，由调用方预先从消息索引中读取
+-- KEYS[3]    任务key对应的租约key(zSet)
+-- KEYS[4]    任务key对应的消息体key(hash)
+-- ARGV[1]    消息ID
+-- 已移入租约key（正在处理或在本地时间轮中等待投递）的任务删除租约后，确认失败，不再处理与重新投递
+-- 返回：1 取消成功；0 消息不存在（已被处理或已取消）；-1 消息索引中的任务key与KEYS[2]不一致（调用方重新读取后重试）
+local id = ARGV[1]
+local key = redis.call('HGET', KEYS[1], id)
+if not key then
+    return 0
+end
+if key ~= KEYS[2] then
+    return -1
+end
+local removed = redis.call('ZREM', KEYS[2], id) + redis.call('ZREM', KEYS[3], id)
+redis.call('HDEL', KEYS[4], id)
+redis.call('HDEL', KEYS[1], id, id .. '.dedup')
+if removed > 0 then
+    return 1
+end
+return 0
@@ -0,0 +1,123 @@
+-- 认领到期的延迟任务：按score(-inf..horizon)选取元素，从任务key中删除并返回，整个过程在一次调用内原子完成
+-- 一次调用可依次认领多个key（多路复用轮询），各key的认领相互独立
+-- KEYS[4i-3] 第i个任务key
+-- KEYS[4i-2] 任务key对应的租约key(zSet)，score为租约到期时间戳
+-- KEYS[4i-1] 任务key对应的消息体key(hash)，hash存储时zSet元素为消息ID，任务元素在此读取
+-- KEYS[4i]   消息索引key(hash)，直接删除的hash存储元素同时删除索引（租约方式认领的元素在确认时删除）
+-- ARGV[1]    当前时间戳(毫秒)
+-- 之后依次为每个任务key的参数：
+--   认领截止时间戳(毫秒)，等于当前时间戳时只认领已到期的元素，大于当前时间戳时预取即将到期的元素
+--   单次认领的元素上限(LIMIT)
+--   单次最多扫描的元素个数，用于跳过本地服务无法消费的元素
+--   租约时长(毫秒)，大于0时认领的元素移入租约key（score = max(元素score, 当前时间戳) + 租约时长，消息体保留至确认），等于0时直接删除（同时删除消息体）
+--   本地服务可消费的delayName个数n，为0时不做过滤
+--   n个delayName，delayName从元素中读取：compact格式（首字节0xD7）从头部读取，jackson格式从JSON中匹配
+-- 认领前，先将租约已到期（持有租约的节点宕机、未及时确认）的元素以当前时间戳放回任务key
+-- 返回：每个任务key一个数组 { 认领后key中剩余元素个数, 认领后key中最早的score（key为空时为空字符串）, 跳过的本地服务无法消费的元素个数,
+--                          member1, score1, payload1, member2, score2, payload2, ... }
+--       payload为消息体key中的任务元素，inline存储（member即任务元素）时为空字符串
+local now = tonumber(ARGV[1])
+
+-- 读取元素的delayName
+local function delayNameOf(member)
+    if string.byte(member, 1) == 215 then
+        -- compact格式：魔数 | 版本 | delayName长度(varint) | delayName
+        local length, multiplier, pos = 0, 1, 3
+        while true do
+            local b = string.byte(member, pos)
+            if b == nil then
+                return nil
+            end
+            pos = pos + 1
+            length = length + (b % 128) * multiplier
+            if b < 128 then
+                break
+            end
+            multiplier = multiplier * 128
+        end
+        return string.sub(member, pos, pos + length - 1)
+    end
+    return string.match(member, '"delayName":"(.-)"')
+end
+
+local function claim(key, leaseKey, payloadKey, indexKey, horizon, limit, maxScan, leaseTimeout, accept)
+    local expired = redis.call('ZRANGEBYSCORE', leaseKey, '-inf', now, 'LIMIT', 0, maxScan)
+    for i = 1, #expired do
+        redis.call('ZREM', leaseKey, expired[i])
+        redis.call('ZADD', key, now, expired[i])
+    end
+
+    local indirect = redis.call('EXISTS', payloadKey) == 1
+
+    local result = { 0, '', 0 }
+    local claimed = {}
+    local offset = 0
+    while #claimed < limit and offset < maxScan do
+        local items = redis.call('ZRANGEBYSCORE', key, '-inf', horizon, 'WITHSCORES', 'LIMIT', offset, limit)
+        if #items == 0 then
+            break
+        end
+        local payloads = {}
+        if indirect then
+            local members = {}
+            for i = 1, #items, 2 do
+                members[#members + 1] = items[i]
+            end
+            payloads = redis.call('HMGET', payloadKey, unpack(members))
+        end
+        for i = 1, #items, 2 do
+            local member = items[i]
+            local payload = payloads[(i + 1) / 2] or ''
+            local consumable = true
+            if accept ~= nil then
+                local delayName = delayNameOf(payload ~= '' and payload or member)
+                consumable = delayName ~= nil and accept[delayName] == true
+            end
+            if not consumable then
+                result[3] = result[3] + 1
+            elseif #claimed < limit then
+                claimed[#claimed + 1] = member
+                result[#result + 1] = member
+                result[#result + 1] = items[i + 1]
+                result[#result + 1] = payload
+            end
+        end
+        offset = offset + #items / 2
+    end
+
+    for i = 1, #claimed do
+        redis.call('ZREM', key, claimed[i])
+        if leaseTimeout > 0 then
+            local expireAt = math.max(tonumber(result[i * 3 + 2]), now) + leaseTimeout
+            redis.call('ZADD', leaseKey, string.format('%.0f', expireAt), claimed[i])
+        elseif result[i * 3 + 3] ~= '' then
+            redis.call('HDEL', payloadKey, claimed[i])
+            redis.call('HDEL', indexKey, claimed[i], claimed[i] .. '.dedup')
+        end
+    end
+    result[1] = redis.call('ZCARD', key)
+    if result[1] > 0 then
+        result[2] = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')[2]
+    end
+    return result
+end
+
+local results = {}
+local arg = 2
+for k = 1, #KEYS, 4 do
+    local horizon = ARGV[arg]
+    local limit = tonumber(ARGV[arg + 1])
+    local maxScan = tonumber(ARGV[arg + 2])
+    local leaseTimeout = tonumber(ARGV[arg + 3])
+    local names = tonumber(ARGV[arg + 4])
+    local accept = nil
+    if names > 0 then
+        accept = {}
+        for i = arg + 5, arg + 4 + names do
+            accept[ARGV[i]] = true
+        end
+    end
+    arg = arg + 5 + names
+    results[#results + 1] = claim(KEYS[k], KEYS[k + 1], KEYS[k + 2], KEYS[k + 3], horizon, limit, maxScan, leaseTimeout, accept)
+end
+return results
@@ -0,0 +1,13 @@
+-- 更新key的轮询配置：新值小于当前值（或当前未配置）时更新，并标记配置变更 [changed]
+-- KEYS[1] 任务key对应的配置key(hash)
+-- ARGV[1] 配置项（delay：最小延迟时间；rate：轮询频率）
+-- ARGV[2] 配置值(毫秒)
+-- ARGV[3] 任务key，配置变更时发布到 delay.config.changed 频道（DelayPollModeConf.DELAY_CONFIG_CHANNEL）
+-- 返回：1 配置已更新；0 配置未更新
+local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]))
+if current == nil or tonumber(ARGV[2]) < current then
+    redis.call('HMSET', KEYS[1], ARGV[1], ARGV[2], 'changed', '1')
+    redis.call('PUBLISH', 'delay.config.changed', ARGV[3])
+    return 1
+end
+return 0
@@ -0,0 +1,14 @@
+-- 更新key的空任务轮询频率：仅当配置中的最小延迟时间、轮询频率仍为计算时读取的值时，写入emptyRate并清除配置变更标志 [changed]
+-- 计算期间配置被 enqueue.lua、config.lua 更新（changed重新置为1）时不写入，保留变更标志，由下一次轮询重新计算
+-- KEYS[1] 任务key对应的配置key(hash)
+-- ARGV[1] 计算时读取的最小延迟时间 delay
+-- ARGV[2] 计算时读取的轮询频率 rate，-1表示未配置
+-- ARGV[3] 新的空任务轮询频率 emptyRate
+-- 返回：1 已更新；0 配置已变更，未更新
+local delay = tonumber(redis.call('HGET', KEYS[1], 'delay'))
+local rate = tonumber(redis.call('HGET', KEYS[1], 'rate') or '-1')
+if delay ~= tonumber(ARGV[1]) or rate ~= tonumber(ARGV[2]) then
+    return 0
+end
+redis.call('HMSET', KEYS[1], 'emptyRate', ARGV[3], 'changed', '0')
+return 1
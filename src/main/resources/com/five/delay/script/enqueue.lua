@@ -0,0 +1,144 @@
+-- 添加延迟任务：写入任务元素并更新key的最小延迟时间配置，整个过程在一次调用内原子完成
+-- KEYS[1]    消息索引key(hash)，field为消息ID，value为任务key，用于按消息ID取消、修改任务（hash存储）
+--            去重元素另以 消息ID.dedup 为field记录去重key，修改到期时间时同步去重key的过期时间
+-- KEYS[3i-1] 任务key
+-- KEYS[3i]   任务key对应的配置key(hash)
+-- KEYS[3i+1] 任务key对应的消息体key(hash)，field为消息ID，value为任务元素
+-- KEYS[3G+2]之后 d个去重key(hash)，以及去重key中记录的任务key及其消息体key（由调用方预先读取，与本次写入的任务key重复时不再传入）
+-- ARGV[1]    任务key分组个数G
+-- ARGV[2]    去重key个数d
+-- ARGV[3]    是否通知队首变更（1：通知，0：不通知），仅在调用方配置了nextDue调度时为1
+-- 之后按KEYS分组依次排列：{ 元素个数n, 本组最小延迟时间(毫秒，小于0时不更新配置，用于重试任务重新入队),
+--                           score1, member1, payload1, dedupKey1, dedupPolicy1, ..., scoreN, memberN, payloadN, dedupKeyN, dedupPolicyN }
+--      payload为空时member即任务元素（inline存储）；不为空时member为消息ID，payload写入消息体key，消息ID写入消息索引key（hash存储）
+--      dedupKey不为空时按业务key去重，dedupKey为去重key在KEYS中的下标：去重key(hash)记录同一业务key当前有效的任务key与元素，在元素的到期时间过期
+--        keepEarliest：保留到期时间较早的任务；keepLatest：保留到期时间较晚的任务；replace：新任务替换原任务
+--        原任务已不在任务key中（已被认领）时，直接写入新任务
+-- 配置变更时，向 delay.config.changed 频道（DelayPollModeConf.DELAY_CONFIG_CHANNEL）发布任务key，通知各节点刷新本地配置
+-- 通知队首变更时，新写入的元素早于key中原最早的元素则向 delay.head.changed 频道（DelayPollModeConf.DELAY_HEAD_CHANNEL）发布"score:任务key"，唤醒等待中的轮询线程
+-- 返回：{ 新增的元素个数, 去重元素1最终保留的member, 去重元素2最终保留的member, ... }
+--       去重key中记录的任务key未在KEYS中声明（调用方读取后发生变化）时不做任何写入，返回 { -1 }，调用方重新读取后重试
+local BATCH = 500
+local added = 0
+local result = { 0 }
+local indexKey = KEYS[1]
+local groups = tonumber(ARGV[1])
+local dedups = tonumber(ARGV[2])
+local notifyHead = ARGV[3] == '1'
+
+local declared = {}
+for i = 1, #KEYS do
+    declared[KEYS[i]] = true
+end
+for i = groups * 3 + 2, groups * 3 + 1 + dedups do
+    local existingKey = redis.call('HGET', KEYS[i], 'key')
+    if existingKey and not (declared[existingKey] and declared[existingKey .. '.payload']) then
+        return { -1 }
+    end
+end
+
+-- 按去重策略处理，返回本次元素是否写入，以及最终保留的任务元素
+local function dedup(key, score, member, dedupKey, policy)
+    local existing = redis.call('HMGET', dedupKey, 'key', 'member')
+    if existing[1] then
+        local existingScore = redis.call('ZSCORE', existing[1], existing[2])
+        if existingScore then
+            existingScore = tonumber(existingScore)
+            if (policy == 'keepEarliest' and existingScore <= score) or (policy == 'keepLatest' and existingScore >= score) then
+                return false, existing[2]
+            end
+            redis.call('ZREM', existing[1], existing[2])
+            redis.call('HDEL', existing[1] .. '.payload', existing[2])
+            redis.call('HDEL', indexKey, existing[2], existing[2] .. '.dedup')
+        end
+    end
+    redis.call('HMSET', dedupKey, 'key', key, 'member', member)
+    redis.call('PEXPIREAT', dedupKey, string.format('%.0f', score))
+    return true, member
+end
+
+local a = 4
+for k = 2, groups * 3 + 1, 3 do
+    local key = KEYS[k]
+    local configKey = KEYS[k + 1]
+    local payloadKey = KEYS[k + 2]
+    local n = tonumber(ARGV[a])
+    local delayArg = ARGV[a + 1]
+    local delay = tonumber(delayArg)
+    a = a + 2
+
+    local from = a
+    local to = a + n * 5 - 1
+
+    local head = nil
+    if notifyHead then
+        head = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')[2]
+    end
+    local minScore = nil
+    local scoreMembers = {}
+    local payloads = {}
+    local indexes = {}
+    for i = from, to, 5 do
+        local score = tonumber(ARGV[i])
+        local member = ARGV[i + 1]
+        local payload = ARGV[i + 2]
+        local write = true
+        if ARGV[i + 3] ~= '' then
+            local kept
+            local dedupKey = KEYS[tonumber(ARGV[i + 3])]
+            write, kept = dedup(key, score, member, dedupKey, ARGV[i + 4])
+            result[#result + 1] = kept
+            if write then
+                -- 去重元素立即写入，同一批次中相同业务key的后续元素可以读取到
+                added = added + redis.call('ZADD', key, ARGV[i], member)
+                if payload ~= '' then
+                    redis.call('HSET', payloadKey, member, payload)
+                    redis.call('HMSET', indexKey, member, key, member .. '.dedup', dedupKey)
+                end
+            end
+        else
+            scoreMembers[#scoreMembers + 1] = ARGV[i]
+            scoreMembers[#scoreMembers + 1] = member
+            if payload ~= '' then
+                payloads[#payloads + 1] = member
+                payloads[#payloads + 1] = payload
+                indexes[#indexes + 1] = member
+                indexes[#indexes + 1] = key
+            end
+        end
+        if write and (minScore == nil or score < minScore) then
+            minScore = score
+        end
+        if #scoreMembers >= BATCH * 2 then
+            added = added + redis.call('ZADD', key, unpack(scoreMembers))
+            scoreMembers = {}
+        end
+        if #payloads >= BATCH * 2 then
+            redis.call('HMSET', payloadKey, unpack(payloads))
+            redis.call('HMSET', indexKey, unpack(indexes))
+            payloads = {}
+            indexes = {}
+        end
+    end
+    if #scoreMembers > 0 then
+        added = added + redis.call('ZADD', key, unpack(scoreMembers))
+    end
+    if #payloads > 0 then
+        redis.call('HMSET', payloadKey, unpack(payloads))
+        redis.call('HMSET', indexKey, unpack(indexes))
+    end
+    a = to + 1
+
+    if notifyHead and minScore ~= nil and (head == nil or minScore < tonumber(head)) then
+        redis.call('PUBLISH', 'delay.head.changed', string.format('%.0f', minScore) .. ':' .. key)
+    end
+
+    -- 更新key的最小延迟时间 [delay]，并标记配置变更 [changed]
+    local current = tonumber(redis.call('HGET', configKey, 'delay'))
+    if delay >= 0 and (current == nil or delay < current) then
+        redis.call('HMSET', configKey, 'delay', delayArg, 'changed', '1')
+        redis.call('PUBLISH', 'delay.config.changed', key)
+    end
+end
+result[1] = added
+return result
@@ -0,0 +1,31 @@
+-- 节点心跳：在每个任务key的节点表(hash)中登记本节点，并清理已过期的节点，整个过程在一次调用内原子完成
+-- KEYS[i]  任务key对应的节点表(hash)，field为节点ID，value为节点过期时间戳
+-- ARGV[1]  当前时间戳(毫秒)
+-- ARGV[2]  本节点ID
+-- ARGV[3]  本节点过期时间戳(毫秒)，小于等于0时从节点表中移除本节点（节点下线）
+-- ARGV[4]  节点表过期时长(毫秒)，所有节点都停止心跳后节点表自动删除
+-- 返回：{ 节点表1中存活的节点ID列表, 节点表2中存活的节点ID列表, ... }
+local now = tonumber(ARGV[1])
+local nodeId = ARGV[2]
+local expireAt = tonumber(ARGV[3])
+local ttl = ARGV[4]
+local result = {}
+for i = 1, #KEYS do
+    if expireAt > 0 then
+        redis.call('HSET', KEYS[i], nodeId, ARGV[3])
+        redis.call('PEXPIRE', KEYS[i], ttl)
+    else
+        redis.call('HDEL', KEYS[i], nodeId)
+    end
+    local entries = redis.call('HGETALL', KEYS[i])
+    local alive = {}
+    for j = 1, #entries, 2 do
+        if tonumber(entries[j + 1]) > now then
+            alive[#alive + 1] = entries[j]
+        else
+            redis.call('HDEL', KEYS[i], entries[j])
+        end
+    end
+    result[i] = alive
+end
+return result
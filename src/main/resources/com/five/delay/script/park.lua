@@ -0,0 +1,16 @@
+-- 停放无法解码的任务元素：移入任务key对应的停放key，保留原始字节与消息体，不再投递，整个过程在一次调用内原子完成
+-- KEYS[1]    任务key对应的停放key(zSet)，score为元素原到期时间戳
+-- KEYS[2]    任务key对应的消息体key(hash)
+-- KEYS[3]    任务key对应的租约key(zSet)，租约方式认领的元素传入，先删除租约
+-- ARGV[1]    元素（inline存储时为任务元素，hash存储时为消息ID）
+-- ARGV[2]    元素原到期时间戳(score)
+-- ARGV[3]    消息体，hash存储时不为空，写回消息体key（直接认领时消息体已被删除）
+-- 返回：1 已停放；0 租约已过期并被放回任务key（或已被确认），不停放
+if KEYS[3] and redis.call('ZREM', KEYS[3], ARGV[1]) == 0 then
+    return 0
+end
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+if ARGV[3] ~= '' then
+    redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])
+end
+return 1
@@ -0,0 +1,20 @@
+-- 归还租约：将仍由本节点持有租约的元素放回任务key，整个过程在一次调用内原子完成
+-- KEYS[1]    任务key
+-- KEYS[2]    任务key对应的租约key(zSet)
+-- KEYS[3]    任务key对应的消息体key(hash)
+-- ARGV       { member1, score1, newMember1, newPayload1, member2, score2, newMember2, newPayload2, ... }
+--            member为租约中的元素，score与newMember为放回任务key时的score与元素（重试时元素的重试次数已变化）
+--            newPayload不为空时，newMember为消息ID，同时更新消息体key中的任务元素
+-- 租约已过期并被放回任务key（或已被确认）的元素不再放回，避免重复投递
+-- 返回：放回的元素个数
+local released = 0
+for i = 1, #ARGV, 4 do
+    if redis.call('ZREM', KEYS[2], ARGV[i]) > 0 then
+        redis.call('ZADD', KEYS[1], ARGV[i + 1], ARGV[i + 2])
+        if ARGV[i + 3] ~= '' then
+            redis.call('HSET', KEYS[3], ARGV[i + 2], ARGV[i + 3])
+        end
+        released = released + 1
+    end
+end
+return released
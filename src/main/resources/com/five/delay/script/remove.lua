@@ -0,0 +1,14 @@
+-- 删除元素：从zSet中删除元素，删除成功时同时删除消息体key中的任务元素与消息索引，整个过程在一次调用内原子完成
+-- 用于确认租约（zSet为租约key）与range认领方式下的竞争认领（zSet为任务key）
+-- KEYS[1]    zSet
+-- KEYS[2]    任务key对应的消息体key(hash)
+-- KEYS[3]    消息索引key(hash)
+-- ARGV[1]    元素（inline存储时为任务元素，hash存储时为消息ID）
+-- 删除失败（租约已过期并被放回任务key、已被其他节点认领）时保留消息体与索引
+-- 返回：删除的元素个数
+local removed = redis.call('ZREM', KEYS[1], ARGV[1])
+if removed > 0 then
+    redis.call('HDEL', KEYS[2], ARGV[1])
+    redis.call('HDEL', KEYS[3], ARGV[1], ARGV[1] .. '.dedup')
+end
+return removed
@@ -0,0 +1,44 @@
+-- 按消息ID修改延迟任务的到期时间，整个过程在一次调用内原子完成
+-- KEYS[1]    消息索引key(hash)，field为消息ID，value为任务key
+-- KEYS[2]    任务key，由调用方预先从消息索引中读取
+-- KEYS[3]    任务key对应的配置key(hash)
+-- KEYS[4]    去重key(hash)，由调用方预先从消息索引（field为 消息ID.dedup）中读取，消息未去重时不传入
+-- ARGV[1]    消息ID
+-- ARGV[2]    新的到期时间戳(score)
+-- ARGV[3]    新的延迟时间(毫秒)，小于key的最小延迟时间时更新配置（与enqueue.lua一致）
+-- ARGV[4]    是否通知队首变更（1：通知，0：不通知），与enqueue.lua一致
+-- 去重key仍记录本消息时，去重key的过期时间同步为新的到期时间，到期前重复发送仍按去重策略处理
+-- 通知队首变更时，新的到期时间早于key中原最早的元素则向 delay.head.changed 频道发布"score:任务key"
+-- 返回：1 修改成功；0 消息不存在或已被认领（已到期正在处理）；-1 消息索引中的任务key、去重key与KEYS不一致（调用方重新读取后重试）
+local id = ARGV[1]
+local key = redis.call('HGET', KEYS[1], id)
+if not key then
+    return 0
+end
+if key ~= KEYS[2] or redis.call('HGET', KEYS[1], id .. '.dedup') ~= (KEYS[4] or false) then
+    return -1
+end
+if not redis.call('ZSCORE', KEYS[2], id) then
+    return 0
+end
+local score = tonumber(ARGV[2])
+local notifyHead = ARGV[4] == '1'
+local head = nil
+if notifyHead then
+    head = redis.call('ZRANGE', KEYS[2], 0, 0, 'WITHSCORES')[2]
+end
+redis.call('ZADD', KEYS[2], 'XX', ARGV[2], id)
+if KEYS[4] and redis.call('HGET', KEYS[4], 'member') == id then
+    redis.call('PEXPIREAT', KEYS[4], string.format('%.0f', score))
+end
+if notifyHead and (head == nil or score < tonumber(head)) then
+    redis.call('PUBLISH', 'delay.head.changed', string.format('%.0f', score) .. ':' .. key)
+end
+
+local delay = tonumber(ARGV[3])
+local current = tonumber(redis.call('HGET', KEYS[3], 'delay'))
+if current == nil or delay < current then
+    redis.call('HMSET', KEYS[3], 'delay', ARGV[3], 'changed', '1')
+    redis.call('PUBLISH', 'delay.config.changed', key)
+end
+return 1